@@ -0,0 +1,115 @@
+/**
+ *  Copyright (c) 2020 Generali Deutschland AG - Team Informatik
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v2.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *  Markus Holzem <markus.holzem@generali.com>
+ */
+package de.generali.dev.ls;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * LExecutors holds the thread pools of the server, so parsing, interactive requests (completion, document symbols)
+ * and background work (diagnostics) do not compete with each other or with lsp4j in the common pool. Within the parse
+ * and background pools waiting tasks are ordered by {@link LPriorityExecutor}.
+ */
+@Slf4j
+public class LExecutors
+{
+	private final LPriorityExecutor _parseExecutor;
+	private final ExecutorService _interactiveExecutor;
+	private final LPriorityExecutor _backgroundExecutor;
+	private final ScheduledExecutorService _timer;
+
+	/**
+	 * Constructor
+	 *
+	 * @param pSettings the settings with the sizes of the pools
+	 */
+	public LExecutors(final LSettings pSettings) {
+		_parseExecutor = new LPriorityExecutor(pSettings.getParseThreads(), new LThreadFactory("parse"));
+		_interactiveExecutor = Executors.newFixedThreadPool(pSettings.getInteractiveThreads(),
+				new LThreadFactory("interactive"));
+		_backgroundExecutor = new LPriorityExecutor(pSettings.getBackgroundThreads(), new LThreadFactory("background"));
+		_timer = Executors.newSingleThreadScheduledExecutor(new LThreadFactory("timer"));
+		log.debug("executors with {} parse, {} interactive and {} background threads", pSettings.getParseThreads(),
+				pSettings.getInteractiveThreads(), pSettings.getBackgroundThreads());
+	}
+
+	/**
+	 * @return the executor to parse documents, parses needed by interactive requests run first
+	 */
+	public LPriorityExecutor getParseExecutor()
+	{
+		return _parseExecutor;
+	}
+
+	/**
+	 * @return the executor for requests the user waits for
+	 */
+	public ExecutorService getInteractiveExecutor()
+	{
+		return _interactiveExecutor;
+	}
+
+	/**
+	 * @return the executor for work the user does not wait for, work for recently touched documents runs first
+	 */
+	public LPriorityExecutor getBackgroundExecutor()
+	{
+		return _backgroundExecutor;
+	}
+
+	/**
+	 * @return the executor for delayed actions, which should only hand over work to the other executors
+	 */
+	public ScheduledExecutorService getTimer()
+	{
+		return _timer;
+	}
+
+	/**
+	 * Stop all executors. Running tasks are interrupted, waiting tasks are dropped.
+	 */
+	public void shutdown()
+	{
+		_timer.shutdownNow();
+		_backgroundExecutor.shutdownNow();
+		_interactiveExecutor.shutdownNow();
+		_parseExecutor.shutdownNow();
+	}
+
+	/**
+	 * Creates named daemon threads, e.g. <code>ls4rexx-parse-1</code>.
+	 */
+	private static class LThreadFactory implements ThreadFactory
+	{
+		private final String _name;
+		private final AtomicInteger _count = new AtomicInteger();
+
+		LThreadFactory(final String pName) {
+			_name = pName;
+		}
+
+		@Override
+		public Thread newThread(final Runnable pRunnable)
+		{
+			final Thread thread = new Thread(pRunnable, "ls4rexx-" + _name + "-" + _count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/**
+ *  Copyright (c) 2020 Generali Deutschland AG - Team Informatik
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v2.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *  Markus Holzem <markus.holzem@generali.com>
+ */
+package de.generali.dev.ls;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LPriorityExecutor is a fixed thread pool which runs waiting tasks by priority instead of by arrival. Interactive
+ * tasks run before background tasks, tasks of more recently touched documents before tasks of older ones and tasks
+ * with the same priority and recency in order of their arrival.
+ */
+public class LPriorityExecutor
+{
+	/**
+	 * The priority of a task.
+	 */
+	public enum LPriority
+	{
+		/** the user waits for the result, e.g. completion */
+		INTERACTIVE,
+		/** the user does not wait for the result, e.g. diagnostics */
+		BACKGROUND;
+	}
+
+	private final ThreadPoolExecutor _executor;
+	private final PriorityBlockingQueue<Runnable> _queue;
+	private final AtomicLong _sequence = new AtomicLong();
+
+	/**
+	 * Constructor
+	 *
+	 * @param pThreads       the number of threads
+	 * @param pThreadFactory the factory for the threads
+	 */
+	public LPriorityExecutor(final int pThreads, final ThreadFactory pThreadFactory) {
+		_queue = new PriorityBlockingQueue<Runnable>();
+		_executor = new ThreadPoolExecutor(pThreads, pThreads, 0L, TimeUnit.MILLISECONDS, _queue, pThreadFactory);
+		// all threads wait for the queue, so every task is ordered by priority
+		_executor.prestartAllCoreThreads();
+	}
+
+	/**
+	 * Run a task with a priority.
+	 *
+	 * @param pTask     the task
+	 * @param pPriority the priority
+	 * @param pRecency  the time the document of the task was touched, larger values are more recent
+	 * @return the waiting task which can be promoted
+	 */
+	public LPriorityTask execute(final Runnable pTask, final LPriority pPriority, final long pRecency)
+	{
+		final LPriorityTask task = new LPriorityTask(pTask, pPriority, pRecency, _sequence.incrementAndGet());
+		_executor.execute(task);
+		return task;
+	}
+
+	/**
+	 * Create an executor running all its tasks with a priority.
+	 *
+	 * @param pPriority the priority
+	 * @param pRecency  the time the document of the tasks was touched, larger values are more recent
+	 * @return the executor
+	 */
+	public Executor withPriority(final LPriority pPriority, final long pRecency)
+	{
+		return task -> execute(task, pPriority, pRecency);
+	}
+
+	/**
+	 * Move a waiting task in front of all background tasks. A task which is already running is not affected.
+	 *
+	 * @param pTask the task
+	 * @return <code>true</code> if the task was waiting
+	 */
+	public boolean promote(final LPriorityTask pTask)
+	{
+		if (pTask.getPriority() == LPriority.INTERACTIVE || !_queue.remove(pTask)) {
+			return false;
+		}
+		_queue.add(new LPriorityTask(pTask._task, LPriority.INTERACTIVE, pTask._recency, pTask._sequence));
+		return true;
+	}
+
+	/**
+	 * Stop the executor. Running tasks are interrupted, waiting tasks are dropped.
+	 */
+	public void shutdownNow()
+	{
+		_executor.shutdownNow();
+	}
+
+	/**
+	 * A task waiting in the queue of the executor.
+	 */
+	public static final class LPriorityTask implements Runnable, Comparable<LPriorityTask>
+	{
+		private final Runnable _task;
+		private final LPriority _priority;
+		private final long _recency;
+		private final long _sequence;
+
+		LPriorityTask(final Runnable pTask, final LPriority pPriority, final long pRecency, final long pSequence) {
+			_task = pTask;
+			_priority = pPriority;
+			_recency = pRecency;
+			_sequence = pSequence;
+		}
+
+		public LPriority getPriority()
+		{
+			return _priority;
+		}
+
+		@Override
+		public void run()
+		{
+			_task.run();
+		}
+
+		@Override
+		public int compareTo(final LPriorityTask pOther)
+		{
+			int cmp = _priority.compareTo(pOther._priority);
+			if (cmp == 0) {
+				cmp = Long.compare(pOther._recency, _recency);
+			}
+			if (cmp == 0) {
+				cmp = Long.compare(_sequence, pOther._sequence);
+			}
+			return cmp;
+		}
+	}
+}
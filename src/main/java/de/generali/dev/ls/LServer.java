@@ -43,6 +43,8 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class LServer implements LanguageServer, LanguageClientAware
 {
+	private final LSettings _settings;
+	private final LExecutors _executors;
 	private final TextDocumentService _textDocumentService;
 	private final WorkspaceService _workspaceService;
 	private final LServices _lServices;
@@ -51,9 +53,15 @@ public class LServer implements LanguageServer, LanguageClientAware
 	private int errorCode = 1;
 
 	public LServer() {
+		this(LSettings.fromSystemProperties());
+	}
+
+	public LServer(final LSettings pSettings) {
+		_settings = pSettings;
+		_executors = new LExecutors(pSettings);
 		_workspaceService = new LWorkspaceService();
 		_serverCapabilities = new ServerCapabilities();
-		_lServices = new LServices(_serverCapabilities);
+		_lServices = new LServices(_serverCapabilities, pSettings);
 		_textDocumentService = new LTextDocumentService(this);
 	}
 
@@ -70,6 +78,7 @@ public class LServer implements LanguageServer, LanguageClientAware
 	{
 		// If shutdown request comes from client, set the error code to 0.
 		errorCode = 0;
+		_executors.shutdown();
 		return null;
 	}
 
@@ -101,6 +110,16 @@ public class LServer implements LanguageServer, LanguageClientAware
 		_languageClient = languageClient;
 	}
 
+	public LSettings getSettings()
+	{
+		return _settings;
+	}
+
+	public LExecutors getExecutors()
+	{
+		return _executors;
+	}
+
 	public LServices getLServices()
 	{
 		return _lServices;
@@ -0,0 +1,99 @@
+/**
+ *  Copyright (c) 2020 Generali Deutschland AG - Team Informatik
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v2.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *  Markus Holzem <markus.holzem@generali.com>
+ */
+package de.generali.dev.ls;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * LSettings holds the settings of the server. They are read from system properties at startup, e.g.
+ * <code>-Dls4rexx.parse.delay.min=50</code>.
+ */
+@Value
+@Builder
+public class LSettings
+{
+	private static final String PREFIX = "ls4rexx.";
+	/** minimal quiet period in milliseconds after a change before the document is parsed */
+	@Builder.Default
+	private final long parseDelayMin = 50L;
+	/** maximal quiet period in milliseconds after a change before the document is parsed */
+	@Builder.Default
+	private final long parseDelayMax = 500L;
+	/** factor applied to the average parse time of a document to get its quiet period */
+	@Builder.Default
+	private final double parseDelayFactor = 2.0d;
+	/** number of threads to parse documents */
+	@Builder.Default
+	private final int parseThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+	/** number of threads for interactive requests like completion */
+	@Builder.Default
+	private final int interactiveThreads = 2;
+	/** number of threads for background work like diagnostics */
+	@Builder.Default
+	private final int backgroundThreads = 1;
+	/** time in milliseconds an interactive request waits for the parse before it is answered from an older model */
+	@Builder.Default
+	private final long staleModelBudget = 50L;
+	/** maximal number of items of a completion list, the best ranked items are kept */
+	@Builder.Default
+	private final int completionLimit = 100;
+
+	/**
+	 * Create the settings from the system properties. Properties which are not set or not valid keep their default
+	 * value.
+	 *
+	 * @return the settings
+	 */
+	public static LSettings fromSystemProperties()
+	{
+		final LSettings defaults = LSettings.builder().build();
+		return LSettings.builder() //
+				.parseDelayMin(getLong("parse.delay.min", defaults.getParseDelayMin())) //
+				.parseDelayMax(getLong("parse.delay.max", defaults.getParseDelayMax())) //
+				.parseDelayFactor(getDouble("parse.delay.factor", defaults.getParseDelayFactor())) //
+				.parseThreads(getThreads("threads.parse", defaults.getParseThreads())) //
+				.interactiveThreads(getThreads("threads.interactive", defaults.getInteractiveThreads())) //
+				.backgroundThreads(getThreads("threads.background", defaults.getBackgroundThreads())) //
+				.staleModelBudget(getLong("stale.model.budget", defaults.getStaleModelBudget())) //
+				.completionLimit(getThreads("completion.limit", defaults.getCompletionLimit())) //
+				.build();
+	}
+
+	private static long getLong(final String pName, final long pDefault)
+	{
+		final String value = System.getProperty(PREFIX + pName);
+		try {
+			return (value != null ? Long.parseLong(value.trim()) : pDefault);
+		} catch (final NumberFormatException exc) {
+			return pDefault;
+		}
+	}
+
+	private static int getThreads(final String pName, final int pDefault)
+	{
+		final long threads = getLong(pName, pDefault);
+		return (threads > 0 && threads <= Integer.MAX_VALUE ? (int) threads : pDefault);
+	}
+
+	private static double getDouble(final String pName, final double pDefault)
+	{
+		final String value = System.getProperty(PREFIX + pName);
+		try {
+			return (value != null ? Double.parseDouble(value.trim()) : pDefault);
+		} catch (final NumberFormatException exc) {
+			return pDefault;
+		}
+	}
+}
@@ -17,19 +17,29 @@
 package de.generali.dev.ls.documents;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
 import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
 import org.eclipse.lsp4j.TextDocumentItem;
 import org.eclipse.lsp4j.jsonrpc.CancelChecker;
 
-import com.google.common.base.Function;
-
+import de.generali.dev.ls.LExecutors;
+import de.generali.dev.ls.LPriorityExecutor;
+import de.generali.dev.ls.LPriorityExecutor.LPriority;
+import de.generali.dev.ls.LPriorityExecutor.LPriorityTask;
+import de.generali.dev.ls.LSettings;
 import de.generali.dev.ls.language.LModel;
 import de.generali.dev.ls.language.LParser;
+import de.generali.dev.ls.language.LTextChange;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -38,30 +48,73 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class LDocumentItem extends TextDocumentItem
 {
+	private final LTextBuffer _textBuffer;
+	private final long _staleModelBudget;
+	private final LParseScheduler _parseScheduler;
+	private final LExecutors _executors;
+	/** receives the lexical model of each parse before the tokens are parsed (may be <code>null</code>) */
+	private final Consumer<LModel> _lexicalModelListener;
+	// single model future per version, guarded by this
 	private CompletableFuture<LModel> _model;
+	private int _modelVersion;
+	private Runnable _startParse;
+	private ScheduledFuture<?> _scheduledParse;
+	private volatile LPriority _parsePriority;
+	private volatile LPriorityTask _parseTask;
+	private volatile long _lastTouched = System.nanoTime();
+	private boolean _changed;
+	private double _averageParseMillis;
+	// last parsed model and the change of the text since then, guarded by this
+	private LModel _lastModel;
+	private LTextChange _pendingChange;
+	private long _modificationCount;
+	// latest successfully parsed model of any version, guarded by this
+	private LModel _latestModel;
+	private final int _generation;
+
+	/**
+	 * Constructor
+	 */
+	public LDocumentItem(final TextDocumentItem pTextDocumentItem, final LSettings pSettings,
+			final LParseScheduler pParseScheduler, final LExecutors pExecutors) {
+		this(pTextDocumentItem, pSettings, pParseScheduler, pExecutors, null, 0);
+	}
 
 	/**
 	 * Constructor
+	 *
+	 * @param pLexicalModelListener receives the lexical model of each parse on the parse thread, so it is always
+	 *                              called before the actions on the model (may be <code>null</code>)
+	 * @param pGeneration           the generation of this open document, it is passed on with every model
 	 */
-	public LDocumentItem(final TextDocumentItem pTextDocumentItem) {
+	public LDocumentItem(final TextDocumentItem pTextDocumentItem, final LSettings pSettings,
+			final LParseScheduler pParseScheduler, final LExecutors pExecutors,
+			final Consumer<LModel> pLexicalModelListener, final int pGeneration) {
+		_lexicalModelListener = pLexicalModelListener;
+		_generation = pGeneration;
+		_textBuffer = new LTextBuffer(pTextDocumentItem.getText());
+		_staleModelBudget = pSettings.getStaleModelBudget();
+		_parseScheduler = pParseScheduler;
+		_executors = pExecutors;
 		super.setUri(pTextDocumentItem.getUri());
-		super.setText(pTextDocumentItem.getText());
 		super.setVersion(pTextDocumentItem.getVersion());
 		super.setLanguageId(pTextDocumentItem.getLanguageId());
 	}
 
 	/**
-	 * Run an action on the model of this LDocumentItem.
+	 * Run an action on the model of this LDocumentItem. After a change the model is parsed when the document has not
+	 * been changed for a quiet period.
 	 *
 	 * @param pAction the action to run
 	 */
 	public void runActionAsync(final Consumer<LModel> pAction)
 	{
-		getModel().thenAcceptAsync(pAction);
+		final Executor executor = _executors.getBackgroundExecutor().withPriority(LPriority.BACKGROUND, _lastTouched);
+		getModel(false).thenAcceptAsync(pAction, executor);
 	}
 
 	/**
-	 * Compute a result on the model of this LDocumentItem.
+	 * Compute a result on the model of this LDocumentItem. A parse waiting for the quiet period is started at once.
 	 *
 	 * @param <Result>                 the generic <code>Result</code>
 	 * @param pComputeResultBiFunction the function taking a cancel checker and the model to produce the
@@ -71,30 +124,172 @@ public class LDocumentItem extends TextDocumentItem
 	public <Result> CompletableFuture<Result> computeResultAsync(
 			final BiFunction<CancelChecker, LModel, Result> pComputeResultBiFunction)
 	{
-		final CompletableFuture<LModel> lModel = getModel();
-		return computeResultForModelAsync(lModel, pComputeResultBiFunction);
+		_lastTouched = System.nanoTime();
+		final CompletableFuture<LModel> lModel = getModel(true);
+		return computeResultForModelAsync(lModel, pComputeResultBiFunction, _executors.getInteractiveExecutor());
+	}
+
+	/**
+	 * Compute a result on the model of this LDocumentItem without waiting long for the parse. If the model of the
+	 * current version is not parsed within the stale model budget, the result is computed on the latest parsed model.
+	 * The version of the model passed to the function tells whether the result belongs to an older text.
+	 *
+	 * @param <Result>                 the generic <code>Result</code>
+	 * @param pComputeResultBiFunction the function taking a cancel checker and the model to produce the
+	 *                                 <code>Result</code>
+	 * @return the computed <code>Result</code>
+	 */
+	public <Result> CompletableFuture<Result> computeLatestResultAsync(
+			final BiFunction<CancelChecker, LModel, Result> pComputeResultBiFunction)
+	{
+		_lastTouched = System.nanoTime();
+		final CompletableFuture<LModel> lModel = getModel(true);
+		final LModel latestModel = getLatestModel();
+		if (lModel.isDone() || latestModel == null) {
+			return computeResultForModelAsync(lModel, pComputeResultBiFunction, _executors.getInteractiveExecutor());
+		}
+		// the first of the fresh model and the latest model after the budget wins
+		final CompletableFuture<LModel> firstModel = new CompletableFuture<LModel>();
+		lModel.whenComplete((model, exc) -> firstModel.complete(model != null ? model : latestModel));
+		final ScheduledFuture<?> timeout = _executors.getTimer().schedule(() -> {
+			if (firstModel.complete(latestModel)) {
+				log.debug("answer from version {} of {}", latestModel.getVersion(), getUri());
+			}
+		}, _staleModelBudget, TimeUnit.MILLISECONDS);
+		firstModel.thenRun(() -> timeout.cancel(false));
+		return computeResultForModelAsync(firstModel, pComputeResultBiFunction, _executors.getInteractiveExecutor());
+	}
+
+	/**
+	 * Compute a result on the latest parsed model of this LDocumentItem without starting a parse.
+	 *
+	 * @param <Result>                 the generic <code>Result</code>
+	 * @param pComputeResultBiFunction the function taking a cancel checker and the model to produce the
+	 *                                 <code>Result</code>, the model is <code>null</code> if none was parsed yet
+	 * @return the computed <code>Result</code>
+	 */
+	public <Result> CompletableFuture<Result> computeParsedResultAsync(
+			final BiFunction<CancelChecker, LModel, Result> pComputeResultBiFunction)
+	{
+		return computeResultForModelAsync(CompletableFuture.completedFuture(getLatestModel()),
+				pComputeResultBiFunction, _executors.getInteractiveExecutor());
 	}
 
 	/**
-	 * Create a {@link CompletableFuture} of the {@link LModel} for this LDocumentItem
+	 * Create a {@link CompletableFuture} of the {@link LModel} for the current version of this LDocumentItem. All
+	 * requests for the same version share one future, so each version is parsed at most once.
 	 *
+	 * @param pImmediate <code>true</code> to start the parse without waiting for the quiet period and in front of
+	 *                   background parses
 	 * @return the {@link CompletableFuture} fo the {@link LModel}
 	 */
-	private CompletableFuture<LModel> getModel()
+	private synchronized CompletableFuture<LModel> getModel(final boolean pImmediate)
 	{
+		final int version = getVersion();
+		if (_model != null && _modelVersion != version) {
+			cancelModel();
+		}
 		if (_model == null) {
-			_model = computeModelAsync(this::parseDocument);
+			final CompletableFuture<CancelChecker> start = new CompletableFuture<>();
+			final LPriorityExecutor parseExecutor = _executors.getParseExecutor();
+			final CompletableFuture<LModel> model = start.thenApplyAsync(
+					cancelChecker -> parseDocument(cancelChecker, version),
+					task -> _parseTask = parseExecutor.execute(task, _parsePriority, _lastTouched));
+			final CancelChecker cancelIndicator = // checkCancel
+					() -> {
+						if (model.isCancelled())
+							throw new CancellationException();
+					};
+			_model = model;
+			_modelVersion = version;
+			_parsePriority = (pImmediate ? LPriority.INTERACTIVE : LPriority.BACKGROUND);
+			_startParse = () -> start.complete(cancelIndicator);
+			if (_changed && !pImmediate) {
+				final long delay = _parseScheduler.getDelay(_averageParseMillis);
+				_scheduledParse = _parseScheduler.schedule(_startParse, delay);
+			} else {
+				_startParse.run();
+			}
+			_changed = false;
+		} else if (pImmediate) {
+			// completing the start twice has no effect
+			_parsePriority = LPriority.INTERACTIVE;
+			_startParse.run();
+			final LPriorityTask parseTask = _parseTask;
+			if (parseTask != null) {
+				_executors.getParseExecutor().promote(parseTask);
+			}
 		}
 		return _model;
 	}
 
-	private LModel parseDocument(final CancelChecker pCancelChecker)
+	/**
+	 * @return the generation of this open document, a document opened again has a new generation
+	 */
+	public int getGeneration()
+	{
+		return _generation;
+	}
+
+	/**
+	 * Close this LDocumentItem. A scheduled or running parse is canceled, so no action is run on its model.
+	 */
+	public synchronized void close()
+	{
+		cancelModel();
+	}
+
+	private synchronized LModel getLatestModel()
+	{
+		return _latestModel;
+	}
+
+	/**
+	 * Parse the text of this LDocumentItem.
+	 *
+	 * @param pCancelChecker the cancel checker
+	 * @param pVersion       the version to parse
+	 * @return the model (or <code>null</code> if the parse was canceled or the document has another version)
+	 */
+	private LModel parseDocument(final CancelChecker pCancelChecker, final int pVersion)
 	{
 		final long startTime = System.currentTimeMillis();
 		LModel lModel = null;
 		try {
 			log.debug("Start parse of {}", getUri());
-			lModel = LParser.INSTANCE.parse(this, pCancelChecker);
+			final String text;
+			final LModel previousModel;
+			final LTextChange change;
+			final long modificationCount;
+			synchronized (this) {
+				if (getVersion() != pVersion) {
+					// a future for an older version has already been canceled by the change
+					throw new CancellationException();
+				}
+				text = getText();
+				previousModel = _lastModel;
+				change = _pendingChange;
+				modificationCount = _modificationCount;
+			}
+			final Consumer<LModel> lexicalModelListener = (_lexicalModelListener == null ? null : lexicalModel -> {
+				pCancelChecker.checkCanceled();
+				_lexicalModelListener.accept(lexicalModel.toBuilder().generation(_generation).build());
+			});
+			lModel = LParser.INSTANCE.parse(getUri(), pVersion, text, previousModel, change, pCancelChecker,
+					lexicalModelListener).toBuilder().generation(_generation).build();
+			final long parseMillis = System.currentTimeMillis() - startTime;
+			synchronized (this) {
+				_averageParseMillis = (_averageParseMillis == 0.0d ? parseMillis
+						: 0.7d * _averageParseMillis + 0.3d * parseMillis);
+				// the next parse can only start from this model if the text did not change meanwhile
+				if (modificationCount == _modificationCount) {
+					_lastModel = lModel;
+					_pendingChange = null;
+				}
+				if (_latestModel == null || _latestModel.getVersion() <= pVersion) {
+					_latestModel = lModel;
+				}
+			}
 		} catch (final CancellationException exc) {
 			log.debug("CANCEL {}ms parse of {}", (System.currentTimeMillis() - startTime), getUri());
 		} finally {
@@ -103,34 +298,111 @@ public class LDocumentItem extends TextDocumentItem
 		return lModel;
 	}
 
-	void update(final List<TextDocumentContentChangeEvent> pChanges)
+	/**
+	 * Apply the changes in the given order. A change with a range replaces only that range of the text, a change
+	 * without a range replaces the complete text.
+	 *
+	 * @param pChanges the list of changes
+	 */
+	synchronized void update(final List<TextDocumentContentChangeEvent> pChanges)
 	{
-		final int numberOfChanges = pChanges.size();
-		if (numberOfChanges > 0) {
-			final TextDocumentContentChangeEvent lastChangeEvent = pChanges.get(numberOfChanges - 1);
-			setText(lastChangeEvent.getText());
+		if (pChanges.isEmpty()) {
+			return;
+		}
+		for (final TextDocumentContentChangeEvent change : pChanges) {
+			final Range range = change.getRange();
+			final String text = (change.getText() != null ? change.getText() : "");
+			if (range == null) {
+				recordChange(0, _textBuffer.getLength(), text.length());
+				_textBuffer.setText(text);
+			} else {
+				final Position start = range.getStart();
+				final Position end = range.getEnd();
+				final int startOffset = _textBuffer.getOffset(start.getLine(), start.getCharacter());
+				final int endOffset = Math.max(startOffset, _textBuffer.getOffset(end.getLine(), end.getCharacter()));
+				_textBuffer.replace(startOffset, endOffset, text);
+				recordChange(startOffset, endOffset, text.length());
+			}
 		}
+		cancelModel();
 	}
 
 	@Override
-	public void setText(final String pText)
+	public synchronized String getText()
 	{
-		super.setText(pText);
+		return _textBuffer.toString();
+	}
+
+	@Override
+	public synchronized void setText(final String pText)
+	{
+		recordChange(0, _textBuffer.getLength(), (pText != null ? pText.length() : 0));
+		_textBuffer.setText(pText);
 		cancelModel();
 	}
 
+	/**
+	 * The text is kept in the text buffer, the text of the {@link TextDocumentItem} is not set after the construction.
+	 * So equality is based on the text of the buffer.
+	 */
+	@Override
+	public boolean equals(final Object pObject)
+	{
+		if (this == pObject) {
+			return true;
+		}
+		if (pObject == null || getClass() != pObject.getClass()) {
+			return false;
+		}
+		final LDocumentItem other = (LDocumentItem) pObject;
+		return Objects.equals(getUri(), other.getUri()) && Objects.equals(getLanguageId(), other.getLanguageId())
+				&& getVersion() == other.getVersion() && getText().equals(other.getText());
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Objects.hash(getUri(), getLanguageId(), getVersion(), getText());
+	}
+
+	@Override
+	public String toString()
+	{
+		return "LDocumentItem(uri=" + getUri() + ", languageId=" + getLanguageId() + ", version=" + getVersion()
+				+ ", length=" + _textBuffer.getLength() + ")";
+	}
+
+	/**
+	 * Accumulate an edit into the change since the last parsed model.
+	 *
+	 * @param pStart          offset of the first replaced character
+	 * @param pEnd            offset behind the last replaced character
+	 * @param pInsertedLength length of the inserted text
+	 */
+	private void recordChange(final int pStart, final int pEnd, final int pInsertedLength)
+	{
+		++_modificationCount;
+		_changed = true;
+		_lastTouched = System.nanoTime();
+		if (_lastModel != null) {
+			_pendingChange = (_pendingChange == null ? LTextChange.of(pStart, pEnd, pInsertedLength)
+					: _pendingChange.merge(pStart, pEnd, pInsertedLength));
+		}
+	}
+
 	/**
 	 * Helper method to create a {@link CompletableFuture} of a generic <code>Result</code> that can be cancelled
 	 *
 	 * @param pComputeResultBiFunction function to compute the result using the {@link LModel}
+	 * @param pExecutor                the executor to compute the result
 	 * @return the {@link CompletableFuture} of the generic <Result>
 	 */
 	private static <Result> CompletableFuture<Result> computeResultForModelAsync(
 			final CompletableFuture<LModel> pLModel,
-			final BiFunction<CancelChecker, LModel, Result> pComputeResultBiFunction)
+			final BiFunction<CancelChecker, LModel, Result> pComputeResultBiFunction, final Executor pExecutor)
 	{
 		final CompletableFuture<CancelChecker> start = new CompletableFuture<CancelChecker>();
-		final CompletableFuture<Result> result = start.thenCombineAsync(pLModel, pComputeResultBiFunction);
+		final CompletableFuture<Result> result = start.thenCombineAsync(pLModel, pComputeResultBiFunction, pExecutor);
 		final CancelChecker cancelIndicator = // checkCancel
 				() -> {
 					if (result.isCancelled()) {
@@ -141,34 +413,19 @@ public class LDocumentItem extends TextDocumentItem
 		return result;
 	}
 
-	/**
-	 * Helper method to create a {@link CompletableFuture} of a {@link LModel} that can be cancelled
-	 *
-	 * @param pComputeModelFunction function to compute the model
-	 * @return the {@link CompletableFuture} of the {@link LModel}
-	 */
-	private static CompletableFuture<LModel> computeModelAsync(
-			final Function<CancelChecker, LModel> pComputeModelFunction)
-	{
-		final CompletableFuture<CancelChecker> start = new CompletableFuture<>();
-		final CompletableFuture<LModel> model = start.thenApplyAsync(pComputeModelFunction);
-		final CancelChecker cancelIndicator = // checkCancel
-				() -> {
-					if (model.isCancelled())
-						throw new CancellationException();
-				};
-		start.complete(cancelIndicator);
-		return model;
-	}
-
 	/**
 	 * Cancel the completable future which loads the model.
 	 */
 	private void cancelModel()
 	{
+		if (_scheduledParse != null) {
+			_scheduledParse.cancel(false);
+			_scheduledParse = null;
+		}
 		if (_model != null) {
 			_model.cancel(true);
 			_model = null;
+			_parseTask = null;
 		}
 	}
 }
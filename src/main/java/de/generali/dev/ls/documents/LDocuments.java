@@ -16,8 +16,10 @@
  */
 package de.generali.dev.ls.documents;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import org.eclipse.lsp4j.DidChangeTextDocumentParams;
 import org.eclipse.lsp4j.DidCloseTextDocumentParams;
@@ -25,36 +27,60 @@ import org.eclipse.lsp4j.DidOpenTextDocumentParams;
 import org.eclipse.lsp4j.TextDocumentIdentifier;
 import org.eclipse.lsp4j.TextDocumentItem;
 
+import de.generali.dev.ls.LExecutors;
+import de.generali.dev.ls.LSettings;
+import de.generali.dev.ls.language.LModel;
+
 /**
  * LDocuments
  */
 public class LDocuments
 {
 	private final Map<String, LDocumentItem> _documents;
+	private final LParseScheduler _parseScheduler;
+	private final LSettings _settings;
+	private final LExecutors _executors;
+	private final Consumer<LModel> _lexicalModelListener;
+	private final AtomicInteger _generations = new AtomicInteger();
+
+	public LDocuments(final LSettings pSettings, final LExecutors pExecutors) {
+		this(pSettings, pExecutors, null);
+	}
 
-	public LDocuments() {
-		_documents = new HashMap<String, LDocumentItem>();
+	/**
+	 * Constructor
+	 *
+	 * @param pSettings             the settings
+	 * @param pExecutors            the executors
+	 * @param pLexicalModelListener receives the lexical model of each parse (may be <code>null</code>)
+	 */
+	public LDocuments(final LSettings pSettings, final LExecutors pExecutors,
+			final Consumer<LModel> pLexicalModelListener) {
+		_lexicalModelListener = pLexicalModelListener;
+		_documents = new ConcurrentHashMap<String, LDocumentItem>();
+		_parseScheduler = new LParseScheduler(pSettings, pExecutors);
+		_settings = pSettings;
+		_executors = pExecutors;
 	}
 
 	public LDocumentItem getDocument(final String pUri)
 	{
-		synchronized (_documents) {
-			return _documents.get(pUri);
-		}
+		return _documents.get(pUri);
 	}
 
 	public LDocumentItem createDocument(final TextDocumentItem pTextDocumentItem)
 	{
-		final LDocumentItem document = new LDocumentItem(pTextDocumentItem);
+		final LDocumentItem document = new LDocumentItem(pTextDocumentItem, _settings, _parseScheduler, _executors,
+				_lexicalModelListener, _generations.incrementAndGet());
 		return document;
 	}
 
 	public LDocumentItem onDidChangeTextDocument(final DidChangeTextDocumentParams params)
 	{
-		LDocumentItem document = null;
-		synchronized (_documents) {
-			document = getDocument(params.getTextDocument());
-			if (document != null) {
+		final LDocumentItem document = getDocument(params.getTextDocument());
+		if (document != null) {
+			// changes of one document are applied one after the other, other documents are not blocked
+			synchronized (document) {
 				document.setVersion(params.getTextDocument().getVersion());
 				document.update(params.getContentChanges());
 			}
@@ -64,23 +90,17 @@ public class LDocuments
 
 	public LDocumentItem onDidOpenTextDocument(final DidOpenTextDocumentParams params)
 	{
-		LDocumentItem document = null;
 		final TextDocumentItem item = params.getTextDocument();
-		synchronized (_documents) {
-			document = createDocument(item);
-			_documents.put(document.getUri(), document);
-		}
+		final LDocumentItem document = createDocument(item);
+		_documents.put(document.getUri(), document);
 		return document;
 	}
 
 	public LDocumentItem onDidCloseTextDocument(final DidCloseTextDocumentParams params)
 	{
-		LDocumentItem document = null;
-		synchronized (_documents) {
-			document = getDocument(params.getTextDocument());
-			if (document != null) {
-				_documents.remove(params.getTextDocument().getUri());
-			}
+		final LDocumentItem document = _documents.remove(params.getTextDocument().getUri());
+		if (document != null) {
+			document.close();
 		}
 		return document;
 	}
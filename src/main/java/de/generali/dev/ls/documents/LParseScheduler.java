@@ -0,0 +1,67 @@
+/**
+ *  Copyright (c) 2020 Generali Deutschland AG - Team Informatik
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v2.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *  Markus Holzem <markus.holzem@generali.com>
+ */
+package de.generali.dev.ls.documents;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import de.generali.dev.ls.LExecutors;
+import de.generali.dev.ls.LSettings;
+
+/**
+ * LParseScheduler delays the parse of a changed document until it has not been changed for a quiet period. The quiet
+ * period of a document follows its parse time: a document that parses fast is parsed soon after typing stops, a large
+ * document waits longer so that fewer parses are started only to be canceled by the next change.
+ */
+public class LParseScheduler
+{
+	private final LSettings _settings;
+	private final ScheduledExecutorService _timer;
+
+	/**
+	 * Constructor
+	 *
+	 * @param pSettings  the settings for the quiet period
+	 * @param pExecutors the executors with the timer
+	 */
+	public LParseScheduler(final LSettings pSettings, final LExecutors pExecutors) {
+		_settings = pSettings;
+		_timer = pExecutors.getTimer();
+	}
+
+	/**
+	 * Compute the quiet period of a document.
+	 *
+	 * @param pAverageParseMillis the average parse time of the document in milliseconds
+	 * @return the quiet period in milliseconds
+	 */
+	long getDelay(final double pAverageParseMillis)
+	{
+		final long delay = Math.round(pAverageParseMillis * _settings.getParseDelayFactor());
+		return Math.min(Math.max(delay, _settings.getParseDelayMin()), _settings.getParseDelayMax());
+	}
+
+	/**
+	 * Run an action after a delay.
+	 *
+	 * @param pAction      the action
+	 * @param pDelayMillis the delay in milliseconds
+	 * @return the future to cancel the action
+	 */
+	ScheduledFuture<?> schedule(final Runnable pAction, final long pDelayMillis)
+	{
+		return _timer.schedule(pAction, pDelayMillis, TimeUnit.MILLISECONDS);
+	}
+}
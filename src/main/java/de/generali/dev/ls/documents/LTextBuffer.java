@@ -0,0 +1,333 @@
+/**
+ *  Copyright (c) 2020 Generali Deutschland AG - Team Informatik
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v2.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *  Markus Holzem <markus.holzem@generali.com>
+ */
+package de.generali.dev.ls.documents;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * LTextBuffer is a piece table holding the text of a {@link LDocumentItem}.
+ * <p>
+ * The text is described by a list of pieces, each referring to a range of either the original text or of an append
+ * only buffer with all inserted text. A range edit therefore only touches the pieces around the edit and appends the
+ * new text, independent of the size of the document. The complete text is only assembled on request by
+ * {@link #toString()}; the result is cached and the piece table is collapsed into a single piece again.
+ * <p>
+ * Lines are separated by <code>\n</code> (which includes <code>\r\n</code>), positions are zero based like in the
+ * language server protocol.
+ */
+public class LTextBuffer
+{
+	private Chunk _original;
+	private Chunk _added;
+	private final List<Piece> _pieces = new ArrayList<Piece>();
+	private int _length;
+	private String _text;
+
+	/**
+	 * Constructor
+	 *
+	 * @param pText the initial text
+	 */
+	public LTextBuffer(final String pText) {
+		setText(pText);
+	}
+
+	/**
+	 * Replace the complete text of this buffer.
+	 *
+	 * @param pText the new text
+	 */
+	public void setText(final String pText)
+	{
+		final String text = (pText != null ? pText : "");
+		_original = new Chunk(text);
+		_added = new Chunk();
+		_pieces.clear();
+		if (!text.isEmpty()) {
+			_pieces.add(new Piece(_original, 0, text.length()));
+		}
+		_length = text.length();
+		_text = text;
+	}
+
+	/**
+	 * Replace the text between two positions with a new text.
+	 *
+	 * @param pStartLine      line of the start position
+	 * @param pStartCharacter character of the start position
+	 * @param pEndLine        line of the end position
+	 * @param pEndCharacter   character of the end position
+	 * @param pText           the new text for the range
+	 */
+	public void replace(final int pStartLine, final int pStartCharacter, final int pEndLine, final int pEndCharacter,
+			final String pText)
+	{
+		final int startOffset = getOffset(pStartLine, pStartCharacter);
+		final int endOffset = Math.max(startOffset, getOffset(pEndLine, pEndCharacter));
+		replace(startOffset, endOffset, pText);
+	}
+
+	/**
+	 * Replace the text between two offsets with a new text.
+	 *
+	 * @param pStartOffset the offset of the first replaced character
+	 * @param pEndOffset   the offset after the last replaced character
+	 * @param pText        the new text for the range
+	 */
+	public void replace(final int pStartOffset, final int pEndOffset, final String pText)
+	{
+		final String text = (pText != null ? pText : "");
+		if (pStartOffset < 0 || pEndOffset < pStartOffset || pEndOffset > _length) {
+			throw new IndexOutOfBoundsException(
+					"range [" + pStartOffset + "," + pEndOffset + ") outside of text with length " + _length);
+		}
+		if (pStartOffset == pEndOffset && text.isEmpty()) {
+			return;
+		}
+		final int first = splitAt(pStartOffset);
+		final int last = splitAt(pEndOffset);
+		_pieces.subList(first, last).clear();
+		if (!text.isEmpty()) {
+			final int start = _added.append(text);
+			_pieces.add(first, new Piece(_added, start, text.length()));
+		}
+		_length += text.length() - (pEndOffset - pStartOffset);
+		_text = null;
+	}
+
+	/**
+	 * Convert a position into an offset. A position behind the end of a line is moved to the end of the line, a
+	 * position behind the last line to the end of the text.
+	 *
+	 * @param pLine      the zero based line
+	 * @param pCharacter the zero based character in the line
+	 * @return the offset in the text
+	 */
+	public int getOffset(final int pLine, final int pCharacter)
+	{
+		final int lineStart = getLineStart(pLine);
+		if (lineStart < 0) {
+			return _length;
+		}
+		final int nextLineStart = getLineStart(pLine + 1);
+		int lineEnd = _length;
+		if (nextLineStart >= 0) {
+			lineEnd = nextLineStart - 1;
+			if (lineEnd > lineStart && charAt(lineEnd - 1) == '\r') {
+				lineEnd--;
+			}
+		}
+		return Math.min(lineStart + Math.max(pCharacter, 0), lineEnd);
+	}
+
+	/**
+	 * @param pOffset the offset in the text
+	 * @return the character at the offset
+	 */
+	public char charAt(final int pOffset)
+	{
+		int pieceOffset = 0;
+		for (final Piece piece : _pieces) {
+			if (pOffset < pieceOffset + piece._length) {
+				return piece._chunk.charAt(piece._start + pOffset - pieceOffset);
+			}
+			pieceOffset += piece._length;
+		}
+		throw new IndexOutOfBoundsException("offset " + pOffset + " outside of text with length " + _length);
+	}
+
+	/**
+	 * @return the length of the text
+	 */
+	public int getLength()
+	{
+		return _length;
+	}
+
+	/**
+	 * @return the number of pieces the text is currently assembled from
+	 */
+	int getNumberOfPieces()
+	{
+		return _pieces.size();
+	}
+
+	/**
+	 * Assemble the text. The result is cached until the next modification.
+	 */
+	@Override
+	public String toString()
+	{
+		if (_text == null) {
+			final StringBuilder sb = new StringBuilder(_length);
+			for (final Piece piece : _pieces) {
+				piece._chunk.appendTo(sb, piece._start, piece._length);
+			}
+			// collapse the pieces, so the table does not grow between two snapshots
+			setText(sb.toString());
+		}
+		return _text;
+	}
+
+	/**
+	 * Compute the offset of the first character of a line.
+	 *
+	 * @param pLine the zero based line
+	 * @return the offset or <code>-1</code> if the text has less lines
+	 */
+	private int getLineStart(final int pLine)
+	{
+		if (pLine <= 0) {
+			return 0;
+		}
+		int pieceOffset = 0;
+		int lineBreaks = 0;
+		for (final Piece piece : _pieces) {
+			if (lineBreaks + piece._lineBreaks >= pLine) {
+				final int lineBreak = piece._chunk.getLineBreak(piece._start, pLine - lineBreaks);
+				return pieceOffset + (lineBreak - piece._start) + 1;
+			}
+			lineBreaks += piece._lineBreaks;
+			pieceOffset += piece._length;
+		}
+		return -1;
+	}
+
+	/**
+	 * Make sure a piece starts at the offset.
+	 *
+	 * @param pOffset the offset in the text
+	 * @return the index of the piece starting at the offset (or the number of pieces for the end of the text)
+	 */
+	private int splitAt(final int pOffset)
+	{
+		int pieceOffset = 0;
+		for (int i = 0; i < _pieces.size(); ++i) {
+			final Piece piece = _pieces.get(i);
+			if (pOffset == pieceOffset) {
+				return i;
+			}
+			if (pOffset < pieceOffset + piece._length) {
+				final int leftLength = pOffset - pieceOffset;
+				_pieces.set(i, new Piece(piece._chunk, piece._start, leftLength));
+				_pieces.add(i + 1, new Piece(piece._chunk, piece._start + leftLength, piece._length - leftLength));
+				return i + 1;
+			}
+			pieceOffset += piece._length;
+		}
+		return _pieces.size();
+	}
+
+	/**
+	 * A piece references a range of a {@link Chunk}.
+	 */
+	private static final class Piece
+	{
+		private final Chunk _chunk;
+		private final int _start;
+		private final int _length;
+		private final int _lineBreaks;
+
+		Piece(final Chunk pChunk, final int pStart, final int pLength) {
+			_chunk = pChunk;
+			_start = pStart;
+			_length = pLength;
+			_lineBreaks = pChunk.countLineBreaks(pStart, pStart + pLength);
+		}
+	}
+
+	/**
+	 * A chunk is either the original text or the append only buffer for inserted text, both with an index of their
+	 * line breaks.
+	 */
+	private static final class Chunk
+	{
+		private final CharSequence _text;
+		private final StringBuilder _appendable;
+		private int[] _lineBreaks = new int[16];
+		private int _numberOfLineBreaks = 0;
+
+		Chunk(final String pText) {
+			_text = pText;
+			_appendable = null;
+			indexLineBreaks(0);
+		}
+
+		Chunk() {
+			_appendable = new StringBuilder();
+			_text = _appendable;
+		}
+
+		int append(final String pText)
+		{
+			final int start = _appendable.length();
+			_appendable.append(pText);
+			indexLineBreaks(start);
+			return start;
+		}
+
+		char charAt(final int pIndex)
+		{
+			return _text.charAt(pIndex);
+		}
+
+		void appendTo(final StringBuilder pStringBuilder, final int pStart, final int pLength)
+		{
+			pStringBuilder.append(_text, pStart, pStart + pLength);
+		}
+
+		int countLineBreaks(final int pStart, final int pEnd)
+		{
+			return lowerBound(pEnd) - lowerBound(pStart);
+		}
+
+		/**
+		 * @return the index of the <code>pNumber</code>th line break at or after <code>pStart</code>
+		 */
+		int getLineBreak(final int pStart, final int pNumber)
+		{
+			return _lineBreaks[lowerBound(pStart) + pNumber - 1];
+		}
+
+		private void indexLineBreaks(final int pStart)
+		{
+			final int length = _text.length();
+			for (int i = pStart; i < length; ++i) {
+				if (_text.charAt(i) == '\n') {
+					if (_numberOfLineBreaks == _lineBreaks.length) {
+						_lineBreaks = Arrays.copyOf(_lineBreaks, _lineBreaks.length * 2);
+					}
+					_lineBreaks[_numberOfLineBreaks++] = i;
+				}
+			}
+		}
+
+		private int lowerBound(final int pIndex)
+		{
+			int low = 0;
+			int high = _numberOfLineBreaks;
+			while (low < high) {
+				final int mid = (low + high) >>> 1;
+				if (_lineBreaks[mid] < pIndex) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+	}
+}
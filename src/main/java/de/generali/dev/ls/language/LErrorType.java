@@ -19,26 +19,36 @@ package de.generali.dev.ls.language;
 public enum LErrorType
 {
 	/** unmatched end comment */
-	E_UNMATCHED_ENDCOMMENT("Unmatched end-of-comment punctuation"),
+	E_UNMATCHED_ENDCOMMENT("Unmatched end-of-comment punctuation", true),
 	/** unmatched start comment */
-	E_UNCLOSED_COMMENT("Unclosed comment"),
+	E_UNCLOSED_COMMENT("Unclosed comment", true),
 	/** unclosed string */
-	E_UNCLOSED_STRING("Unclosed string"),
+	E_UNCLOSED_STRING("Unclosed string", true),
 	/** illegal character */
-	E_ILLEGAL_CHAR("Illegal character"),
+	E_ILLEGAL_CHAR("Illegal character", true),
 	/** unclosed do keyword */
-	E_UNMATCHED_DO("Unmatched do keyword"),
+	E_UNMATCHED_DO("Unmatched do keyword", false),
 	/** unmatched end keyword */
-	E_UNMATCHED_END("Unmatched end keyword");
+	E_UNMATCHED_END("Unmatched end keyword", false);
 
 	private String _message;
+	private boolean _lexical;
 
-	private LErrorType(final String pMessage) {
+	private LErrorType(final String pMessage, final boolean pLexical) {
 		_message = pMessage;
+		_lexical = pLexical;
 	}
 
 	public String getMessage()
 	{
 		return _message;
 	}
+
+	/**
+	 * @return <code>true</code> if the error is detected by the lexer, <code>false</code> if by the parser
+	 */
+	public boolean isLexical()
+	{
+		return _lexical;
+	}
 }
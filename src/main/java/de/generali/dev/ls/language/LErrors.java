@@ -49,6 +49,24 @@ public class LErrors
 		return (getNumberOfErrors() != 0);
 	}
 
+	@Override
+	public boolean equals(final Object pObject)
+	{
+		if (this == pObject) {
+			return true;
+		}
+		if (pObject == null || getClass() != pObject.getClass()) {
+			return false;
+		}
+		return _errors.equals(((LErrors) pObject)._errors);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return _errors.hashCode();
+	}
+
 	@Override
 	public String toString()
 	{
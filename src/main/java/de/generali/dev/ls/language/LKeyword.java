@@ -0,0 +1,298 @@
+/**
+ *  Copyright (c) 2020 Generali Deutschland AG - Team Informatik
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v2.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *  Markus Holzem <markus.holzem@generali.com>
+ */
+package de.generali.dev.ls.language;
+
+import java.util.Locale;
+
+/**
+ * LKeyword lists the keywords and built-in functions of REXX. The lexer matches every symbol with one rule and
+ * classifies it with {@link #lookup(char[], int, int)} in a perfect hash table, so a new keyword or function only has
+ * to be added here. The lexer attaches the keyword to the token, so the parser compares keywords by identity.
+ * <p>
+ * Sub-keywords which are only keywords within an instruction are lexed as identifiers, they can be used as variables
+ * elsewhere.
+ * <p>
+ * The enum is also the catalog of the completion, every keyword and function is listed once with its label and the
+ * signature of the function.
+ */
+public enum LKeyword
+{
+	/* keywords */
+	ADDRESS(true, true, "ADDRESS()"),
+	ARG(true, true, "ARG([n [,option]])"),
+	CALL(true, false),
+	DO(true, false),
+	END(true, false),
+	TO(true, false),
+	BY(true, false),
+	FOR(true, false),
+	FOREVER(true, false),
+	WHILE(true, false),
+	DROP(true, false),
+	EXIT(true, false),
+	IF(true, false),
+	THEN(true, false),
+	ELSE(true, false),
+	INTERPRET(true, false),
+	ITERATE(true, false),
+	LEAVE(true, false),
+	NOP(true, false),
+	NUMERIC(true, false),
+	OPTIONS(true, false),
+	PARSE(true, false),
+	PROCEDURE(true, false),
+	EXPOSE(true, false),
+	PULL(true, false),
+	PUSH(true, false),
+	QUEUE(true, false),
+	RETURN(true, false),
+	SAY(true, false),
+	SELECT(true, false),
+	WHEN(true, false),
+	SIGNAL(true, false),
+	TRACE(true, true, "TRACE([option])"),
+	UPPER(true, false),
+	/* functions */
+	ABBREV(false, true, "ABBREV(information, info [,length])"),
+	ABS(false, true, "ABS(number)"),
+	BITAND(false, true, "BITAND(string1 [,string2] [,pad])"),
+	BITOR(false, true, "BITOR(string1 [,string2] [,pad])"),
+	BITXOR(false, true, "BITXOR(string1 [,string2] [,pad])"),
+	B2X(false, true, "B2X(binary_string)"),
+	CENTER(false, true, "CENTER(string, length [,pad])"),
+	CENTRE(false, true, "CENTRE(string, length [,pad])"),
+	COMPARE(false, true, "COMPARE(string1, string2 [,pad])"),
+	CONDITION(false, true, "CONDITION([option])"),
+	COPIES(false, true, "COPIES(string, n)"),
+	C2D(false, true, "C2D(string [,n])"),
+	C2X(false, true, "C2X(string)"),
+	DATATYPE(false, true, "DATATYPE(string [,type])"),
+	DATE(false, true, "DATE([date_format [,date [,input_date_format]]])"),
+	DBCS(false, true, "DBCS()"),
+	DELSTR(false, true, "DELSTR(string, n [,length])"),
+	DELWORD(false, true, "DELWORD(string, n [,length])"),
+	DIGITS(false, true, "DIGITS()"),
+	D2C(false, true, "D2C(wholenumber [,n])"),
+	D2X(false, true, "D2X(wholenumber [,n])"),
+	ERRORTEXT(false, true, "ERRORTEXT(n)"),
+	EXTERNALS(false, true, "EXTERNALS()"),
+	FIND(false, true, "FIND(string, phrase)"),
+	FORM(false, true, "FORM()"),
+	FORMAT(false, true, "FORMAT(number [,before] [,after] [,expp] [,expt])"),
+	FUZZ(false, true, "FUZZ()"),
+	INDEX(false, true, "INDEX(haystack, needle [,start])"),
+	INSERT(false, true, "INSERT(new, target [,n] [,length] [,pad])"),
+	JUSTIFY(false, true, "JUSTIFY(string, length [,pad])"),
+	LASTPOS(false, true, "LASTPOS(needle, haystack [,start])"),
+	LEFT(false, true, "LEFT(string, length [,pad])"),
+	LENGTH(false, true, "LENGTH(string)"),
+	LINESIZE(false, true, "LINESIZE()"),
+	MAX(false, true, "MAX(number [,number]...)"),
+	MIN(false, true, "MIN(number [,number]...)"),
+	OVERLAY(false, true, "OVERLAY(new, target [,n] [,length] [,pad])"),
+	POS(false, true, "POS(needle, haystack [,start])"),
+	QUEUED(false, true, "QUEUED()"),
+	RANDOM(false, true, "RANDOM([max] | [min] [,max] [,seed])"),
+	REVERSE(false, true, "REVERSE(string)"),
+	RIGHT(false, true, "RIGHT(string, length [,pad])"),
+	SIGN(false, true, "SIGN(number)"),
+	SOURCELINE(false, true, "SOURCELINE([n])"),
+	SPACE(false, true, "SPACE(string [,n] [,pad])"),
+	STRIP(false, true, "STRIP(string [,option] [,char])"),
+	SUBSTR(false, true, "SUBSTR(string, n [,length] [,pad])"),
+	SUBWORD(false, true, "SUBWORD(string, n [,length])"),
+	SYMBOL(false, true, "SYMBOL(name)"),
+	TIME(false, true, "TIME([option [,time [,input_format]]])"),
+	TRANSLATE(false, true, "TRANSLATE(string [,tableo] [,tablei] [,pad])"),
+	TRUNC(false, true, "TRUNC(number [,n])"),
+	USERID(false, true, "USERID()"),
+	VALUE(false, true, "VALUE(name [,newvalue] [,selector])"),
+	VERIFY(false, true, "VERIFY(string, reference [,option] [,start])"),
+	WORD(false, true, "WORD(string, n)"),
+	WORDINDEX(false, true, "WORDINDEX(string, n)"),
+	WORDLENGTH(false, true, "WORDLENGTH(string, n)"),
+	WORDPOS(false, true, "WORDPOS(phrase, string [,start])"),
+	WORDS(false, true, "WORDS(string)"),
+	XRANGE(false, true, "XRANGE([start] [,end])"),
+	X2B(false, true, "X2B(hexstring)"),
+	X2C(false, true, "X2C(hexstring)"),
+	X2D(false, true, "X2D(hexstring [,n])"),
+	/* TSO/E external functions */
+	GETMSG(false, true, "GETMSG(msgstem [,msgtype] [,cart] [,mask] [,time])"),
+	LISTDSI(false, true, "LISTDSI(data_set_name | filename FILE [,option]...)"),
+	MSG(false, true, "MSG([ON | OFF])"),
+	MVSVAR(false, true, "MVSVAR(arg_name)"),
+	OUTTRAP(false, true, "OUTTRAP(varname | OFF [,max] [,concat] [,skipamt])"),
+	PROMPT(false, true, "PROMPT([ON | OFF])"),
+	SETLANG(false, true, "SETLANG([langcode])"),
+	STORAGE(false, true, "STORAGE(address [,length] [,data])"),
+	SYSCPUS(false, true, "SYSCPUS(cpus_stem)"),
+	SYSDSN(false, true, "SYSDSN(dsname)"),
+	SYSVAR(false, true, "SYSVAR(arg_name)"),
+	TRAPMSG(false, true, "TRAPMSG([ON | OFF])"),
+	/* sub-keywords which are lexed as identifiers */
+	SOURCE(false, false),
+	WITH(false, false);
+
+	private static final LKeyword[] TABLE;
+	private static final int SEED;
+	private static final int MAX_LENGTH;
+
+	static {
+		final LKeyword[] keywords = values();
+		int maxLength = 0;
+		for (final LKeyword keyword : keywords) {
+			maxLength = Math.max(maxLength, keyword._name.length);
+		}
+		MAX_LENGTH = maxLength;
+		// search the smallest table and a seed for which no two names have the same slot
+		LKeyword[] table = null;
+		int seed = 0;
+		for (int size = Integer.highestOneBit(keywords.length) << 2; table == null; size <<= 1) {
+			for (seed = 1; seed <= 1000 && table == null; ++seed) {
+				table = createTable(keywords, size, seed);
+			}
+		}
+		TABLE = table;
+		SEED = seed - 1;
+	}
+
+	private final char[] _name;
+	private final String _label;
+	private final boolean _keyword;
+	private final boolean _function;
+	private final String _signature;
+
+	private LKeyword(final boolean pKeyword, final boolean pFunction) {
+		this(pKeyword, pFunction, null);
+	}
+
+	private LKeyword(final boolean pKeyword, final boolean pFunction, final String pSignature) {
+		_name = name().toCharArray();
+		_label = name().toLowerCase(Locale.ROOT);
+		_keyword = pKeyword;
+		_function = pFunction;
+		_signature = pSignature;
+	}
+
+	/**
+	 * @return the name in lower case as it is proposed by the completion
+	 */
+	public String getLabel()
+	{
+		return _label;
+	}
+
+	/**
+	 * @return the signature of the function (or <code>null</code> if the symbol is no function)
+	 */
+	public String getSignature()
+	{
+		return _signature;
+	}
+
+	/**
+	 * @return <code>true</code> if the symbol is lexed as a keyword
+	 */
+	public boolean isKeyword()
+	{
+		return _keyword;
+	}
+
+	/**
+	 * @return <code>true</code> if the symbol is a built-in or external function
+	 */
+	public boolean isFunction()
+	{
+		return _function;
+	}
+
+	/**
+	 * @return the type of the token the lexer produces for the symbol, a symbol which is both a keyword and a function
+	 *         is lexed as a keyword
+	 */
+	public LTokenType getTokenType()
+	{
+		if (_keyword) {
+			return LTokenType.KEYWORD;
+		}
+		return (_function ? LTokenType.FUNCTION : LTokenType.IDENTIFIER);
+	}
+
+	/**
+	 * Find the keyword or function of a symbol ignoring case.
+	 *
+	 * @param pText the text
+	 * @return the keyword or <code>null</code> if the text is no keyword or function
+	 */
+	public static LKeyword lookup(final String pText)
+	{
+		return lookup(pText.toCharArray(), 0, pText.length());
+	}
+
+	/**
+	 * Find the keyword or function of a symbol ignoring case without copying its characters.
+	 *
+	 * @param pBuffer the buffer with the symbol
+	 * @param pStart  the index of the first character of the symbol
+	 * @param pLength the number of characters of the symbol
+	 * @return the keyword or <code>null</code> if the symbol is no keyword or function
+	 */
+	public static LKeyword lookup(final char[] pBuffer, final int pStart, final int pLength)
+	{
+		if (pLength > MAX_LENGTH) {
+			return null;
+		}
+		final LKeyword keyword = TABLE[hash(pBuffer, pStart, pLength, SEED) & (TABLE.length - 1)];
+		if (keyword == null || keyword._name.length != pLength) {
+			return null;
+		}
+		for (int i = 0; i < pLength; ++i) {
+			if (upperCase(pBuffer[pStart + i]) != keyword._name[i]) {
+				return null;
+			}
+		}
+		return keyword;
+	}
+
+	/**
+	 * @return the table or <code>null</code> if two names have the same slot
+	 */
+	private static LKeyword[] createTable(final LKeyword[] pKeywords, final int pSize, final int pSeed)
+	{
+		final LKeyword[] table = new LKeyword[pSize];
+		for (final LKeyword keyword : pKeywords) {
+			final int slot = hash(keyword._name, 0, keyword._name.length, pSeed) & (pSize - 1);
+			if (table[slot] != null) {
+				return null;
+			}
+			table[slot] = keyword;
+		}
+		return table;
+	}
+
+	private static int hash(final char[] pBuffer, final int pStart, final int pLength, final int pSeed)
+	{
+		int hash = pSeed;
+		for (int i = pStart; i < pStart + pLength; ++i) {
+			hash = (hash ^ upperCase(pBuffer[i])) * 0x01000193;
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	private static char upperCase(final char pChar)
+	{
+		return (pChar >= 'a' && pChar <= 'z' ? (char) (pChar - ('a' - 'A')) : pChar);
+	}
+}
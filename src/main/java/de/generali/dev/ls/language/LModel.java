@@ -13,6 +13,7 @@
  */
 package de.generali.dev.ls.language;
 
+import java.nio.CharBuffer;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -23,7 +24,11 @@ import java.util.stream.Collectors;
 
 import org.eclipse.lsp4j.jsonrpc.CancelChecker;
 
+import lombok.AccessLevel;
 import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 
@@ -31,24 +36,55 @@ import lombok.extern.slf4j.Slf4j;
  * LModel accumulates all information gained from the LParser.
  */
 @Value
-@Builder
+@Builder(toBuilder = true)
 @Slf4j
 public final class LModel
 {
 	private static final LToken NULL_TOKEN = new LToken(LTokenType.COMMENT, "", 0, 0, 0);
 	private final String uri;
+	/** the version of the document the model was parsed from */
+	private final int version;
+	/** the generation of the open document, the versions start again when a document is opened again */
+	private final int generation;
+	/** the text the model was parsed from (may be <code>null</code> for a model built from tokens only) */
+	@ToString.Exclude
+	private final String source;
 	private final List<LToken> tokens;
 	private final List<LToken> variables;
 	private final List<LToken> labels;
+	/** the stem parts of the variables (may be <code>null</code> for a model not built by the parser) */
+	@ToString.Exclude
+	@EqualsAndHashCode.Exclude
+	private final LStemTree stemTree;
 	private final CancelChecker cancelChecker;
 	private final LErrors errors;
+	@Getter(AccessLevel.PACKAGE)
+	private final LParserState parserState;
 
+	/**
+	 * @return the text the model was parsed from, it is only joined from the tokens if the model has no source
+	 */
 	public String getText()
 	{
+		if (source != null) {
+			return source;
+		}
 		final String fileText = tokens.stream().map(token -> token.getText()).collect(Collectors.joining());
 		return fileText;
 	}
 
+	/**
+	 * Get a part of the source without copying it.
+	 *
+	 * @param pCharBegin the offset of the first character
+	 * @param pCharEnd   the offset behind the last character
+	 * @return a view on the part of the text
+	 */
+	public CharSequence getText(final long pCharBegin, final long pCharEnd)
+	{
+		return CharBuffer.wrap(getText(), (int) pCharBegin, (int) pCharEnd);
+	}
+
 	public String getFileName()
 	{
 		try {
@@ -61,6 +97,39 @@ public final class LModel
 		}
 	}
 
+	/**
+	 * Find the variables starting with a prefix ignoring case. The parser sorts the variables ignoring case.
+	 *
+	 * @param pPrefix the prefix
+	 * @return a view on the sorted variables with the prefix
+	 */
+	public List<LToken> findVariables(final String pPrefix)
+	{
+		return LNames.findByPrefix(variables, LToken::getText, pPrefix);
+	}
+
+	/**
+	 * @return the stem parts of the variables, they are only collected here if the model was not built by the parser
+	 */
+	public LStemTree getStemTree()
+	{
+		if (stemTree != null) {
+			return stemTree;
+		}
+		return new LStemTree(variables != null ? variables : Collections.emptyList());
+	}
+
+	/**
+	 * Find the labels starting with a prefix ignoring case. The parser sorts the labels ignoring case.
+	 *
+	 * @param pPrefix the prefix
+	 * @return a view on the sorted labels with the prefix
+	 */
+	public List<LToken> findLabels(final String pPrefix)
+	{
+		return LNames.findByPrefix(labels, LToken::getText, pPrefix);
+	}
+
 	public LToken getToken(final int pIndex)
 	{
 		if (pIndex < 0 || pIndex > tokens.size() - 1) {
@@ -71,8 +140,14 @@ public final class LModel
 
 	public int locateToken(final int pLine, final int pColumn)
 	{
-		final LToken compareToken = new LToken(LTokenType.SYNTHETIC, "", pLine, pColumn, 0);
-		int position = Collections.binarySearch(tokens, compareToken, new LTokenPositionComparator());
+		int position;
+		if (tokens instanceof LTokenTable) {
+			// search the tokens of the line in the table without creating tokens
+			position = ((LTokenTable) tokens).locate(pLine, pColumn);
+		} else {
+			final LToken compareToken = new LToken(LTokenType.SYNTHETIC, "", pLine, pColumn, 0);
+			position = Collections.binarySearch(tokens, compareToken, new LTokenPositionComparator());
+		}
 		if (position < 0) {
 			position = tokens.size() - 1;
 		}
@@ -0,0 +1,89 @@
+/**
+ *  Copyright (c) 2020 Generali Deutschland AG - Team Informatik
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v2.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *  Markus Holzem <markus.holzem@generali.com>
+ */
+package de.generali.dev.ls.language;
+
+/**
+ * LNameSet is a set of names ignoring case. A name is looked up directly in the range of the source of a token, the
+ * text of the name is only created when it is added. The names are kept in an open addressing hash table.
+ */
+final class LNameSet
+{
+	private static final int MIN_CAPACITY = 16;
+	private String[] _names = new String[MIN_CAPACITY];
+	private int _size;
+
+	/**
+	 * Add a name if the set does not contain it yet.
+	 *
+	 * @param pSource the source with the name
+	 * @param pBegin  the index of the first character of the name
+	 * @param pLength the number of characters of the name
+	 * @return <code>true</code> if the name was added, <code>false</code> if the set already contains it
+	 */
+	boolean add(final String pSource, final int pBegin, final int pLength)
+	{
+		final int mask = _names.length - 1;
+		int slot = hash(pSource, pBegin, pLength) & mask;
+		String name;
+		while ((name = _names[slot]) != null) {
+			if (name.length() == pLength && name.regionMatches(true, 0, pSource, pBegin, pLength)) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		_names[slot] = pSource.substring(pBegin, pBegin + pLength);
+		// keep the table at most half full
+		if (++_size * 2 > _names.length) {
+			grow();
+		}
+		return true;
+	}
+
+	/**
+	 * @return the number of names
+	 */
+	int size()
+	{
+		return _size;
+	}
+
+	private void grow()
+	{
+		final String[] names = _names;
+		_names = new String[names.length * 2];
+		final int mask = _names.length - 1;
+		for (final String name : names) {
+			if (name != null) {
+				int slot = hash(name, 0, name.length()) & mask;
+				while (_names[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				_names[slot] = name;
+			}
+		}
+	}
+
+	/**
+	 * The hash folds the case the same way as {@link String#regionMatches(boolean, int, String, int, int)}.
+	 */
+	private static int hash(final String pSource, final int pBegin, final int pLength)
+	{
+		int hash = 0;
+		for (int i = pBegin; i < pBegin + pLength; ++i) {
+			hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(pSource.charAt(i)));
+		}
+		// spread the bits to the low end used by the mask
+		return hash ^ (hash >>> 16);
+	}
+}
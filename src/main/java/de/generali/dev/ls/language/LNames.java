@@ -0,0 +1,88 @@
+/**
+ *  Copyright (c) 2020 Generali Deutschland AG - Team Informatik
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v2.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *  Markus Holzem <markus.holzem@generali.com>
+ */
+package de.generali.dev.ls.language;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * LNames searches names in lists which are sorted ignoring case, like the variables and labels of a {@link LModel}.
+ * All names with a prefix are neighbours in such a list, so they are found with two binary searches and returned as
+ * a view on the list without copying or lower-casing a name.
+ */
+public final class LNames
+{
+	private LNames() {
+	}
+
+	/**
+	 * Find the elements of a sorted list whose name starts with a prefix ignoring case.
+	 *
+	 * @param pSorted the list sorted by the names ignoring case
+	 * @param pName   the function returning the name of an element
+	 * @param pPrefix the prefix
+	 * @return a view on the part of the list with the elements starting with the prefix
+	 */
+	public static <T> List<T> findByPrefix(final List<T> pSorted, final Function<? super T, String> pName,
+			final String pPrefix)
+	{
+		final int from = lowerBound(pSorted, pName, pPrefix);
+		return pSorted.subList(from, upperBound(pSorted, pName, pPrefix, from));
+	}
+
+	/**
+	 * @param pSorted the list sorted by the names ignoring case
+	 * @param pName   the function returning the name of an element
+	 * @param pPrefix the prefix
+	 * @return the index of the first element not in front of the prefix
+	 */
+	public static <T> int lowerBound(final List<T> pSorted, final Function<? super T, String> pName,
+			final String pPrefix)
+	{
+		int low = 0;
+		int high = pSorted.size();
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (String.CASE_INSENSITIVE_ORDER.compare(pName.apply(pSorted.get(mid)), pPrefix) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @param pSorted the list sorted by the names ignoring case
+	 * @param pName   the function returning the name of an element
+	 * @param pPrefix the prefix
+	 * @param pFrom   the lower bound of the prefix
+	 * @return the index of the first element behind the elements starting with the prefix
+	 */
+	public static <T> int upperBound(final List<T> pSorted, final Function<? super T, String> pName,
+			final String pPrefix, final int pFrom)
+	{
+		int low = pFrom;
+		int high = pSorted.size();
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (pName.apply(pSorted.get(mid)).regionMatches(true, 0, pPrefix, 0, pPrefix.length())) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
@@ -13,12 +13,9 @@
 */
 package de.generali.dev.ls.language;
 
-import java.io.IOException;
-import java.io.Reader;
-import java.io.StringReader;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
 
 import org.eclipse.lsp4j.TextDocumentItem;
 import org.eclipse.lsp4j.jsonrpc.CancelChecker;
@@ -33,6 +30,9 @@ public enum LParser
 {
 	INSTANCE;
 
+	/** number of statements between two checkpoints of the parser state */
+	private static final int CHECKPOINT_INTERVAL = 64;
+
 	public LModel parse(final String pUri, final String pText)
 	{
 		return parse(pUri, pText, null);
@@ -49,36 +49,118 @@ public enum LParser
 	public LModel parse(final String pUri, final String pText, final CancelChecker pCancelChecker)
 			throws CancellationException
 	{
-		log.debug("parse {}", pUri);
-		final LParserHandler handler = new LParserHandler();
-		final Reader reader = new StringReader(pText);
-		final LLexer lexer = new LLexer(reader);
-		final List<LToken> tokens = new ArrayList<LToken>();
+		return parse(pUri, pText, null, null, pCancelChecker);
+	}
+
+	public LModel parse(final String pUri, final String pText, final LModel pPreviousModel, final LTextChange pChange,
+			final CancelChecker pCancelChecker) throws CancellationException
+	{
+		return parse(pUri, 0, pText, pPreviousModel, pChange, pCancelChecker);
+	}
+
+	/**
+	 * Parse a text after a change. The tokens of the previous model are reused where the text did not change.
+	 *
+	 * @param pUri           the uri of the text
+	 * @param pVersion       the version of the text
+	 * @param pText          the text
+	 * @param pPreviousModel the model of the text before the change (or <code>null</code> for a complete parse)
+	 * @param pChange        the change from the text of the previous model to the text (or <code>null</code> for a
+	 *                       complete parse)
+	 * @param pCancelChecker the cancel checker (may be <code>null</code>)
+	 * @return the model
+	 * @throws CancellationException if parsing is canceled
+	 */
+	public LModel parse(final String pUri, final int pVersion, final String pText, final LModel pPreviousModel,
+			final LTextChange pChange, final CancelChecker pCancelChecker) throws CancellationException
+	{
+		return parse(pUri, pVersion, pText, pPreviousModel, pChange, pCancelChecker, null);
+	}
+
+	/**
+	 * Parse a text after a change and pass the errors of the lexer on before the tokens are parsed.
+	 * <p>
+	 * The lexical model passed on has the tokens and the errors of the lexer, but no variables and labels. The
+	 * structural errors of the previous model are added where their token is still in the new text, so they do not
+	 * vanish until the parse is done.
+	 *
+	 * @param pUri           the uri of the text
+	 * @param pVersion       the version of the text
+	 * @param pText          the text
+	 * @param pPreviousModel the model of the text before the change (or <code>null</code> for a complete parse)
+	 * @param pChange        the change from the text of the previous model to the text (or <code>null</code> for a
+	 *                       complete parse)
+	 * @param pCancelChecker the cancel checker (may be <code>null</code>)
+	 * @param pLexicalModel  receives the lexical model as soon as the text is lexed (may be <code>null</code>)
+	 * @return the model
+	 * @throws CancellationException if parsing is canceled
+	 */
+	public LModel parse(final String pUri, final int pVersion, final String pText, final LModel pPreviousModel,
+			final LTextChange pChange, final CancelChecker pCancelChecker, final Consumer<LModel> pLexicalModel)
+			throws CancellationException
+	{
+		log.debug("parse {} version {}", pUri, pVersion);
+		final LScanner scanner = new LScanner(pCancelChecker);
+		if (pPreviousModel != null && pChange != null) {
+			scanner.rescan(pText, pPreviousModel, pChange);
+		} else {
+			scanner.scan(pText);
+		}
+		final LTokenTable tokens = scanner.getTokens();
+		if (pLexicalModel != null) {
+			final LErrors errors = new LErrors();
+			errors.addAllErrors(scanner.getErrors());
+			addStructuralErrors(errors, tokens, pPreviousModel, pChange);
+			pLexicalModel.accept(new LModel.LModelBuilder().uri(pUri).version(pVersion).source(pText).tokens(tokens)
+					.cancelChecker(pCancelChecker).errors(errors).build());
+		}
+		// continue at the last checkpoint in front of the first relexed token
+		final LParserCheckpoint checkpoint = findCheckpoint(pPreviousModel, scanner.getNumberOfReusedTokens());
+		final LParserHandler handler;
+		final int currentIndex;
+		int prevIndex;
+		int numberOfStatements;
+		if (checkpoint != null) {
+			handler = new LParserHandler(tokens, pPreviousModel.getParserState(), checkpoint);
+			currentIndex = checkpoint.getTokenIndex();
+			prevIndex = checkpoint.getPrevTokenIndex();
+			numberOfStatements = checkpoint.getNumberOfStatements();
+		} else {
+			handler = new LParserHandler(tokens);
+			currentIndex = skipTokens(tokens, 0);
+			prevIndex = -1;
+			numberOfStatements = 0;
+		}
 		// correct interpretation usually needs three tokens
 		// Initialize triple
-		LToken prev = null;
-		LToken current = getNextNonSkipToken(lexer, tokens);
-		LToken next = getNextNonSkipToken(lexer, tokens);
+		int index = currentIndex;
+		int nextIndex = skipTokens(tokens, currentIndex + 1);
 		//
-		while (current != null) {
-			final LTokenType lTokenType = current.getType();
+		while (index < tokens.size()) {
+			if (isStatementStart(tokens, prevIndex, index)) {
+				if (numberOfStatements % CHECKPOINT_INTERVAL == 0) {
+					handler.addCheckpoint(index, prevIndex, numberOfStatements);
+				}
+				++numberOfStatements;
+			}
+			final LTokenType lTokenType = tokens.getType(index);
 			switch (lTokenType) {
 			case KEYWORD:
-				handler.handleKeyword(prev, current, next);
+				handler.handleKeyword(prevIndex, index, nextIndex);
 				break;
 			case IDENTIFIER:
-				handler.handleIdentifier(prev, current, next);
+				handler.handleIdentifier(prevIndex, index, nextIndex);
 				break;
 			case COLON:
-				handler.handleColon(prev, current, next);
+				handler.handleColon(prevIndex, index, nextIndex);
 				break;
 			default:
 				break;
 			}
 			// Next Token
-			prev = current;
-			current = next;
-			next = getNextNonSkipToken(lexer, tokens);
+			prevIndex = index;
+			index = nextIndex;
+			nextIndex = skipTokens(tokens, nextIndex + 1);
 			// Check whether parsing is canceled
 			if (pCancelChecker != null) {
 				pCancelChecker.checkCanceled();
@@ -87,44 +169,98 @@ public enum LParser
 		// merge lexer and parser errors
 		handler.finishParsing();
 		final LErrors errors = new LErrors();
-		errors.addAllErrors(lexer.getErrors());
+		errors.addAllErrors(scanner.getErrors());
 		errors.addAllErrors(handler.getErrors());
 		// create model from data
-		final LModel lModel = new LModel.LModelBuilder().uri(pUri).tokens(tokens).variables(handler.getVariables())
-				.labels(handler.getLabels()).cancelChecker(pCancelChecker).errors(errors).build();
-		log.debug("parsing done {}: {} variables, {} labels", pUri, handler.getVariables().size(),
-				handler.getLabels().size());
+		final List<LToken> variables = handler.getVariables();
+		final List<LToken> labels = handler.getLabels();
+		final LModel lModel = new LModel.LModelBuilder().uri(pUri).version(pVersion).source(pText).tokens(tokens)
+				.variables(variables).stemTree(new LStemTree(variables)).labels(labels).cancelChecker(pCancelChecker)
+				.errors(errors).parserState(handler.getState()).build();
+		log.debug("parsing done {}: {} variables, {} labels", pUri, variables.size(), labels.size());
 		return lModel;
 	}
 
-	private LToken getNextNonSkipToken(final LLexer pLexer, final List<LToken> pCompleteTokenList)
+	/**
+	 * Find the checkpoint of the previous model to continue parsing at.
+	 *
+	 * @param pPreviousModel        the previous model (may be <code>null</code>)
+	 * @param pNumberOfReusedTokens the number of unchanged tokens at the start of the token list
+	 * @return the checkpoint or <code>null</code> to parse from the start
+	 */
+	private LParserCheckpoint findCheckpoint(final LModel pPreviousModel, final int pNumberOfReusedTokens)
 	{
-		LToken token = null;
-		boolean tokenFound = false;
-		while ((!tokenFound) && ((token = getNextToken(pLexer)) != null)) {
-			final LTokenType lTokenType = token.getType();
-			switch (lTokenType) {
-			case WHITESPACE:
-			case COMMENT:
-				pCompleteTokenList.add(token);
-				break;
-			default:
-				pCompleteTokenList.add(token);
-				tokenFound = true;
-				break;
+		if (pPreviousModel == null || pPreviousModel.getParserState() == null) {
+			return null;
+		}
+		return pPreviousModel.getParserState().findCheckpoint(pNumberOfReusedTokens);
+	}
+
+	/**
+	 * Add the structural errors of the previous model whose token is unchanged in front of or behind the change. The
+	 * token is looked up in the new tokens to get its position in the new text.
+	 *
+	 * @param pErrors        the errors to add to
+	 * @param pTokens        the new tokens
+	 * @param pPreviousModel the previous model (may be <code>null</code>)
+	 * @param pChange        the change from the text of the previous model to the text (may be <code>null</code>)
+	 */
+	private void addStructuralErrors(final LErrors pErrors, final LTokenTable pTokens, final LModel pPreviousModel,
+			final LTextChange pChange)
+	{
+		if (pPreviousModel == null || pChange == null) {
+			return;
+		}
+		final LErrors previousErrors = pPreviousModel.getErrors();
+		for (int i = 0; i < previousErrors.getNumberOfErrors(); ++i) {
+			final LError error = previousErrors.getError(i);
+			final LToken token = error.getToken();
+			final long newCharBegin;
+			if (error.getErrorType().isLexical()) {
+				continue;
+			} else if (token.getCharEnd() <= pChange.getStart()) {
+				newCharBegin = token.getCharBegin();
+			} else if (token.getCharBegin() >= pChange.getOldEnd()) {
+				newCharBegin = token.getCharBegin() + pChange.getDelta();
+			} else {
+				// the token is changed
+				continue;
+			}
+			// a token in front of the change may have grown by the change
+			final int index = LScanner.findToken(pTokens, newCharBegin);
+			if (index >= 0 && pTokens.getLength(index) == token.getLength()
+					&& pTokens.getType(index) == token.getType()) {
+				pErrors.addError(error.getErrorType(), pTokens.get(index));
 			}
 		}
-		return token;
 	}
 
-	private LToken getNextToken(final LLexer pLexer)
+	/**
+	 * A statement starts with the first token of a line or behind a semicolon.
+	 */
+	private boolean isStatementStart(final LTokenTable pTokens, final int pPrevIndex, final int pCurrentIndex)
 	{
-		LToken token = null;
-		try {
-			token = pLexer.nextToken();
-		} catch (final IOException exc) {
-			log.error("error while reading next token", exc);
+		return pPrevIndex < 0 || pTokens.getLine(pPrevIndex) != pTokens.getLine(pCurrentIndex)
+				|| pTokens.getType(pPrevIndex) == LTokenType.SEMICOLON;
+	}
+
+	/**
+	 * Skip WHITESPACE and COMMENT tokens.
+	 *
+	 * @param pTokens the complete token table
+	 * @param pIndex  the index to start at
+	 * @return the index of the next token to parse (or the size of the table)
+	 */
+	private int skipTokens(final LTokenTable pTokens, final int pIndex)
+	{
+		int index = pIndex;
+		while (index < pTokens.size()) {
+			final LTokenType lTokenType = pTokens.getType(index);
+			if (lTokenType != LTokenType.WHITESPACE && lTokenType != LTokenType.COMMENT) {
+				break;
+			}
+			++index;
 		}
-		return token;
+		return index;
 	}
 }
@@ -0,0 +1,37 @@
+/**
+ *  Copyright (c) 2020 Generali Deutschland AG - Team Informatik
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v2.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *  Markus Holzem <markus.holzem@generali.com>
+ */
+package de.generali.dev.ls.language;
+
+import lombok.Value;
+
+/**
+ * LParserCheckpoint is an immutable snapshot of the {@link LParserHandler} state in front of a statement. Parsing can
+ * be restarted there as long as the tokens up to the statement did not change.
+ */
+@Value
+class LParserCheckpoint
+{
+	/** index of the first token of the statement */
+	private final int tokenIndex;
+	/** index of the token in front of the statement (<code>-1</code> for the first statement) */
+	private final int prevTokenIndex;
+	/** the number of statements in front of this one */
+	private final int numberOfStatements;
+	private final int numberOfVariables;
+	private final int numberOfLabels;
+	private final int numberOfErrors;
+	/** the token indices of the open do and select keywords, the innermost first */
+	private final int[] doStack;
+	private final boolean inParseStatement;
+}
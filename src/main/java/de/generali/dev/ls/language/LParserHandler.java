@@ -15,81 +15,141 @@ package de.generali.dev.ls.language;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Deque;
-import java.util.HashSet;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.Objects;
 import java.util.Set;
 
 /**
- * LParserHandler
+ * LParserHandler collects variables, labels and errors. The tokens are passed by their index in the token table,
+ * keywords are recognized by the {@link LKeyword} the lexer attached to the token.
  */
 class LParserHandler
 {
-	private static final List<String> PARSE_SUBKEYWORDS = Arrays.asList("arg", "value", "source", "with");
-	private final Set<String> _registeredVariables = new HashSet<String>();
-	private final Set<String> _registeredLabels = new HashSet<String>();
+	private static final Set<LKeyword> PARSE_SUBKEYWORDS = EnumSet.of(LKeyword.ARG, LKeyword.VALUE, LKeyword.SOURCE,
+			LKeyword.WITH);
+	private final LTokenTable _tokens;
+	private final LNameSet _registeredVariables = new LNameSet();
+	private final LNameSet _registeredLabels = new LNameSet();
 	private final List<LToken> _variables = new ArrayList<LToken>();
 	private final List<LToken> _labels = new ArrayList<LToken>();
 	private boolean _inParseStatement = false;
 	private final Deque<LToken> _doStack = new ArrayDeque<LToken>();
 	private final LErrors _errors = new LErrors();
+	private final List<LParserCheckpoint> _checkpoints = new ArrayList<LParserCheckpoint>();
 
-	void handleKeyword(final LToken pPrevToken, final LToken pCurrentToken, final LToken pNextToken)
+	LParserHandler(final LTokenTable pTokens) {
+		_tokens = pTokens;
+	}
+
+	/**
+	 * Create a handler with the state of a previous parse at a checkpoint. The tokens up to the checkpoint have the
+	 * same index in both token tables, so the tokens of the state are taken from the new table and the previous table
+	 * is not referenced any more.
+	 *
+	 * @param pTokens     the token table
+	 * @param pState      the state of the previous parse
+	 * @param pCheckpoint the checkpoint of the previous parse to continue at
+	 */
+	LParserHandler(final LTokenTable pTokens, final LParserState pState, final LParserCheckpoint pCheckpoint) {
+		_tokens = pTokens;
+		for (final LToken variable : pState.getVariables().subList(0, pCheckpoint.getNumberOfVariables())) {
+			_variables.add(_tokens.get(variable.getIndex()));
+			register(_registeredVariables, variable.getIndex());
+		}
+		for (final LToken label : pState.getLabels().subList(0, pCheckpoint.getNumberOfLabels())) {
+			_labels.add(_tokens.get(label.getIndex()));
+			register(_registeredLabels, label.getIndex());
+		}
+		for (int i = 0; i < pCheckpoint.getNumberOfErrors(); ++i) {
+			final LError error = pState.getErrors().getError(i);
+			_errors.addError(error.getErrorType(), _tokens.get(error.getToken().getIndex()));
+		}
+		for (final int doIndex : pCheckpoint.getDoStack()) {
+			_doStack.addLast(_tokens.get(doIndex));
+		}
+		_inParseStatement = pCheckpoint.isInParseStatement();
+		// the checkpoint itself is recorded again when parsing continues
+		final List<LParserCheckpoint> checkpoints = pState.getCheckpoints();
+		_checkpoints.addAll(checkpoints.subList(0, checkpoints.indexOf(pCheckpoint)));
+	}
+
+	void handleKeyword(final int pPrevIndex, final int pCurrentIndex, final int pNextIndex)
 	{
-		final String keyword = pCurrentToken.getText().toLowerCase();
-		if (Objects.equals("parse", keyword)) {
+		final LKeyword keyword = _tokens.getKeyword(pCurrentIndex);
+		if (keyword == LKeyword.PARSE) {
 			_inParseStatement = true;
 		} else if (_inParseStatement) {
-			if (!PARSE_SUBKEYWORDS.contains(keyword)) {
+			if (!isParseSubKeyword(keyword)) {
 				_inParseStatement = false;
 			}
 		}
-		if (Objects.equals("do", keyword) || Objects.equals("select", keyword)) {
-			_doStack.push(pCurrentToken);
+		if (keyword == null) {
+			return;
 		}
-		if (Objects.equals("end", keyword)) {
+		switch (keyword) {
+		case DO:
+		case SELECT:
+			_doStack.push(_tokens.get(pCurrentIndex));
+			break;
+		case END:
 			if (_doStack.isEmpty()) {
-				_errors.addError(LErrorType.E_UNMATCHED_END, pCurrentToken);
+				_errors.addError(LErrorType.E_UNMATCHED_END, _tokens.get(pCurrentIndex));
 			} else {
 				_doStack.pop();
 			}
+			break;
+		default:
+			break;
 		}
 	}
 
-	void handleIdentifier(final LToken pPrevToken, final LToken pCurrentToken, final LToken pNextToken)
+	void handleIdentifier(final int pPrevIndex, final int pCurrentIndex, final int pNextIndex)
 	{
-		final LTokenType nextTokenType = (pNextToken != null ? pNextToken.getType() : null);
+		final LTokenType nextTokenType = (pNextIndex < _tokens.size() ? _tokens.getType(pNextIndex) : null);
 		final boolean isNextEqual = (nextTokenType == LTokenType.EQ);
-		if (isNextEqual) {
-			final String tokenText = pCurrentToken.getText();
-			final String tokenTextLowerCase = tokenText.toLowerCase();
-			if (!_registeredVariables.contains(tokenTextLowerCase)) {
-				_variables.add(pCurrentToken);
-				_registeredVariables.add(tokenTextLowerCase);
-			}
-		}
-		if (_inParseStatement) {
-			final String tokenText = pCurrentToken.getText();
-			final String tokenTextLowerCase = tokenText.toLowerCase();
-			if (!_registeredVariables.contains(tokenTextLowerCase) && !PARSE_SUBKEYWORDS.contains(tokenTextLowerCase)) {
-				_variables.add(pCurrentToken);
-				_registeredVariables.add(tokenTextLowerCase);
+		// the name is looked up in the source, its text is only created for a new variable
+		if (isNextEqual || (_inParseStatement && !isParseSubKeyword(_tokens.getKeyword(pCurrentIndex)))) {
+			if (register(_registeredVariables, pCurrentIndex)) {
+				_variables.add(_tokens.get(pCurrentIndex));
 			}
 		}
 	}
 
-	void handleColon(final LToken pPrevToken, final LToken pCurrentToken, final LToken pNextToken)
+	/**
+	 * @return <code>true</code> if the name of the token was not registered before
+	 */
+	private boolean register(final LNameSet pNames, final int pIndex)
+	{
+		return pNames.add(_tokens.getSource(), (int) _tokens.getCharBegin(pIndex), _tokens.getLength(pIndex));
+	}
+
+	private static boolean isParseSubKeyword(final LKeyword pKeyword)
+	{
+		return (pKeyword != null && PARSE_SUBKEYWORDS.contains(pKeyword));
+	}
+
+	void handleColon(final int pPrevIndex, final int pCurrentIndex, final int pNextIndex)
 	{
-		final String labelText = pPrevToken.getText();
-		final String labelTextUpperCase = labelText.toUpperCase();
-		if (!_registeredLabels.contains(labelTextUpperCase)) {
-			_labels.add(pPrevToken);
-			_registeredLabels.add(labelTextUpperCase);
+		if (register(_registeredLabels, pPrevIndex)) {
+			_labels.add(_tokens.get(pPrevIndex));
 		}
 	}
 
+	/**
+	 * Record the current state in front of a statement.
+	 *
+	 * @param pTokenIndex         index of the first token of the statement
+	 * @param pPrevIndex          index of the token in front of the statement
+	 * @param pNumberOfStatements the number of statements in front of this one
+	 */
+	void addCheckpoint(final int pTokenIndex, final int pPrevIndex, final int pNumberOfStatements)
+	{
+		final int[] doStack = _doStack.stream().mapToInt(LToken::getIndex).toArray();
+		_checkpoints.add(new LParserCheckpoint(pTokenIndex, pPrevIndex, pNumberOfStatements, _variables.size(),
+				_labels.size(), _errors.getNumberOfErrors(), doStack, _inParseStatement));
+	}
+
 	void finishParsing()
 	{
 		while (!_doStack.isEmpty()) {
@@ -100,14 +160,24 @@ class LParserHandler
 
 	List<LToken> getVariables()
 	{
-		_variables.sort((s1, s2) -> s1.getText().compareToIgnoreCase(s2.getText()));
-		return _variables;
+		final List<LToken> variables = new ArrayList<LToken>(_variables);
+		variables.sort((s1, s2) -> s1.getText().compareToIgnoreCase(s2.getText()));
+		return variables;
 	}
 
 	List<LToken> getLabels()
 	{
-		_labels.sort((s1, s2) -> s1.getText().compareToIgnoreCase(s2.getText()));
-		return _labels;
+		final List<LToken> labels = new ArrayList<LToken>(_labels);
+		labels.sort((s1, s2) -> s1.getText().compareToIgnoreCase(s2.getText()));
+		return labels;
+	}
+
+	/**
+	 * @return the state to continue a later parse at one of the checkpoints
+	 */
+	LParserState getState()
+	{
+		return new LParserState(_variables, _labels, _errors, _checkpoints);
 	}
 
 	LErrors getErrors()
@@ -0,0 +1,56 @@
+/**
+ *  Copyright (c) 2020 Generali Deutschland AG - Team Informatik
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v2.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *  Markus Holzem <markus.holzem@generali.com>
+ */
+package de.generali.dev.ls.language;
+
+import java.util.List;
+
+import lombok.Value;
+
+/**
+ * LParserState keeps what the {@link LParserHandler} collected for a {@link LModel}, so a later parse of the changed
+ * text can restart at one of its checkpoints.
+ */
+@Value
+class LParserState
+{
+	/** the variables in order of their declaration */
+	private final List<LToken> variables;
+	/** the labels in order of their declaration */
+	private final List<LToken> labels;
+	/** the errors of the handler */
+	private final LErrors errors;
+	/** the checkpoints ordered by token index */
+	private final List<LParserCheckpoint> checkpoints;
+
+	/**
+	 * Find the last checkpoint in front of a token.
+	 *
+	 * @param pTokenIndex the index of the first token which may have changed
+	 * @return the checkpoint or <code>null</code> if there is none
+	 */
+	LParserCheckpoint findCheckpoint(final int pTokenIndex)
+	{
+		int low = 0;
+		int high = checkpoints.size();
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (checkpoints.get(mid).getTokenIndex() < pTokenIndex) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return (low > 0 ? checkpoints.get(low - 1) : null);
+	}
+}
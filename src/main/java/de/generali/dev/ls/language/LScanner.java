@@ -0,0 +1,235 @@
+/**
+ *  Copyright (c) 2020 Generali Deutschland AG - Team Informatik
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v2.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *  Markus Holzem <markus.holzem@generali.com>
+ */
+package de.generali.dev.ls.language;
+
+import java.io.IOException;
+
+import org.eclipse.lsp4j.jsonrpc.CancelChecker;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * LScanner produces the complete token table of a text with the {@link LLexer}.
+ * <p>
+ * After an edit only the changed part of the text is lexed again. The lexer is restarted at a safe token in front of
+ * the change and stops as soon as it produces a token that is also in the previous token list behind the change. The
+ * remaining tokens of the previous list are moved by the change and reused.
+ * <p>
+ * A token is safe for a restart if it starts a line, is no whitespace and follows whitespace. All tokens including
+ * comments start in the state <code>YYINITIAL</code> and no pattern can reach over such a token, so the lexer
+ * produces the same tokens from there as a lexer started at the beginning of the text.
+ */
+@Slf4j
+class LScanner
+{
+	private final CancelChecker _cancelChecker;
+	private LTokenTable _tokens;
+	private final LErrors _errors = new LErrors();
+	private int _numberOfReusedTokens = 0;
+
+	LScanner(final CancelChecker pCancelChecker) {
+		_cancelChecker = pCancelChecker;
+	}
+
+	/**
+	 * Lex the complete text.
+	 *
+	 * @param pText the text
+	 */
+	void scan(final String pText)
+	{
+		_tokens = new LTokenTable(pText);
+		final LLexer lexer = new LLexer(pText);
+		LTokenType type;
+		while ((type = getNextTokenType(lexer)) != null) {
+			_tokens.add(type, lexer.getTokenKeyword(), lexer.getTokenCharBegin(), lexer.getTokenLength(),
+					lexer.getTokenLine(), lexer.getTokenColumn());
+			checkCanceled();
+		}
+		_tokens.trimToSize();
+		_tokens.buildLineIndex();
+		_errors.addAllErrors(lexer.getErrors());
+	}
+
+	/**
+	 * Lex the text after a change, reusing the tokens of the previous model where the text did not change.
+	 *
+	 * @param pText          the new text
+	 * @param pPreviousModel the model of the text before the change
+	 * @param pChange        the change from the text of the previous model to the new text
+	 */
+	void rescan(final String pText, final LModel pPreviousModel, final LTextChange pChange)
+	{
+		if (!(pPreviousModel.getTokens() instanceof LTokenTable)) {
+			scan(pText);
+			return;
+		}
+		final LTokenTable previousTokens = (LTokenTable) pPreviousModel.getTokens();
+		final int restartIndex = findRestartIndex(previousTokens, pChange.getStart());
+		if (restartIndex < 0) {
+			scan(pText);
+			return;
+		}
+		final int restartLine = previousTokens.getLine(restartIndex);
+		final long restartOffset = previousTokens.getCharBegin(restartIndex);
+		final long delta = pChange.getDelta();
+		// the previous tokens up to the restart token are unchanged
+		_tokens = new LTokenTable(pText);
+		_tokens.addAll(previousTokens, 0, restartIndex, 0, 0L);
+		_numberOfReusedTokens = restartIndex;
+		final LErrors previousErrors = pPreviousModel.getErrors();
+		addLexicalErrors(previousErrors, Long.MIN_VALUE, restartOffset, 0, 0L);
+		// lex from the restart token until the tokens are in sync again
+		final LLexer lexer = new LLexer(pText, (int) restartOffset, restartLine);
+		int syncIndex = -1;
+		int syncLines = 0;
+		long syncOffset = Long.MAX_VALUE;
+		LTokenType type;
+		while ((type = getNextTokenType(lexer)) != null) {
+			final int line = lexer.getTokenLine();
+			final int column = lexer.getTokenColumn();
+			final long charBegin = lexer.getTokenCharBegin();
+			if (column == 0 && charBegin >= pChange.getNewEnd()) {
+				syncIndex = findToken(previousTokens, charBegin - delta);
+				if (syncIndex >= 0 && previousTokens.getColumn(syncIndex) == 0) {
+					syncLines = line - previousTokens.getLine(syncIndex);
+					syncOffset = charBegin;
+					break;
+				}
+				syncIndex = -1;
+			}
+			_tokens.add(type, lexer.getTokenKeyword(), charBegin, lexer.getTokenLength(), line, column);
+			checkCanceled();
+		}
+		// the lexer may already have reported an error for the sync token
+		final LErrors lexerErrors = lexer.getErrors();
+		for (int i = 0; i < lexerErrors.getNumberOfErrors(); ++i) {
+			final LError error = lexerErrors.getError(i);
+			if (error.getToken().getCharBegin() < syncOffset) {
+				_errors.addError(error.getErrorType(), error.getToken());
+			}
+		}
+		// the previous tokens from the sync token on are only moved
+		if (syncIndex >= 0) {
+			_tokens.addAll(previousTokens, syncIndex, previousTokens.size(), syncLines, delta);
+			addLexicalErrors(previousErrors, previousTokens.getCharBegin(syncIndex), Long.MAX_VALUE, syncLines, delta);
+		}
+		_tokens.trimToSize();
+		_tokens.buildLineIndex();
+		log.debug("relexed {} of {} tokens", _tokens.size() - restartIndex
+				- (syncIndex >= 0 ? previousTokens.size() - syncIndex : 0), _tokens.size());
+	}
+
+	LTokenTable getTokens()
+	{
+		return _tokens;
+	}
+
+	LErrors getErrors()
+	{
+		return _errors;
+	}
+
+	/**
+	 * @return the number of tokens at the start of the token list which are taken unchanged from the previous model
+	 */
+	int getNumberOfReusedTokens()
+	{
+		return _numberOfReusedTokens;
+	}
+
+	/**
+	 * Find the last safe token starting in front of an offset.
+	 *
+	 * @param pTokens the tokens
+	 * @param pOffset the offset
+	 * @return the index of the token or <code>-1</code> if there is none
+	 */
+	private static int findRestartIndex(final LTokenTable pTokens, final long pOffset)
+	{
+		int index = lowerBound(pTokens, pOffset) - 1;
+		while (index > 0) {
+			if (pTokens.getColumn(index) == 0 && pTokens.getType(index) != LTokenType.WHITESPACE
+					&& pTokens.getType(index - 1) == LTokenType.WHITESPACE) {
+				return index;
+			}
+			--index;
+		}
+		return -1;
+	}
+
+	/**
+	 * Find the token starting at an offset.
+	 *
+	 * @param pTokens the tokens
+	 * @param pOffset the offset
+	 * @return the index of the token or <code>-1</code> if no token starts at the offset
+	 */
+	static int findToken(final LTokenTable pTokens, final long pOffset)
+	{
+		final int index = lowerBound(pTokens, pOffset);
+		if (index < pTokens.size() && pTokens.getCharBegin(index) == pOffset) {
+			return index;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the index of the first token starting at or behind the offset
+	 */
+	private static int lowerBound(final LTokenTable pTokens, final long pOffset)
+	{
+		int low = 0;
+		int high = pTokens.size();
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (pTokens.getCharBegin(mid) < pOffset) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private void addLexicalErrors(final LErrors pErrors, final long pFrom, final long pTo, final int pLines,
+			final long pChars)
+	{
+		for (int i = 0; i < pErrors.getNumberOfErrors(); ++i) {
+			final LError error = pErrors.getError(i);
+			final long charBegin = error.getToken().getCharBegin();
+			if (error.getErrorType().isLexical() && pFrom <= charBegin && charBegin < pTo) {
+				_errors.addError(error.getErrorType(), error.getToken().moveBy(pLines, pChars));
+			}
+		}
+	}
+
+	private void checkCanceled()
+	{
+		if (_cancelChecker != null) {
+			_cancelChecker.checkCanceled();
+		}
+	}
+
+	private static LTokenType getNextTokenType(final LLexer pLexer)
+	{
+		LTokenType type = null;
+		try {
+			type = pLexer.nextTokenType();
+		} catch (final IOException exc) {
+			log.error("error while reading next token", exc);
+		}
+		return type;
+	}
+}
@@ -0,0 +1,119 @@
+/**
+ *  Copyright (c) 2020 Generali Deutschland AG - Team Informatik
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v2.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *  Markus Holzem <markus.holzem@generali.com>
+ */
+package de.generali.dev.ls.language;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * LStemTree holds the stem parts of the variables of a model. A compound variable like <code>cust.addr.city</code>
+ * has the parts <code>cust.</code>, <code>cust.addr.</code> and <code>cust.addr.city</code>, each part is the child
+ * of the stem in front of it.
+ * <p>
+ * The tree is built once by the parser. Its parts are kept flat and sorted ignoring case like the variables, so
+ * every stem comes before its tails and all parts starting with a prefix are found with two binary searches. Each
+ * variable knows the part of its complete name, so a completion walks only the parts and variables with the prefix.
+ */
+public final class LStemTree
+{
+	private final List<LToken> _variables;
+	/** the part of the complete name of each variable */
+	private final int[] _variableParts;
+	private final List<String> _parts;
+	/** the stem of each part or <code>-1</code> for a part without a stem */
+	private final int[] _parents;
+
+	/**
+	 * Constructor
+	 *
+	 * @param pVariables the variables sorted ignoring case
+	 */
+	public LStemTree(final List<LToken> pVariables) {
+		_variables = pVariables;
+		final Set<String> parts = new LinkedHashSet<String>();
+		for (final LToken variable : pVariables) {
+			final String text = variable.getText();
+			int dot = -1;
+			while ((dot = text.indexOf('.', dot + 1)) >= 0) {
+				parts.add(text.substring(0, dot + 1));
+			}
+			parts.add(text);
+		}
+		_parts = new ArrayList<String>(parts);
+		_parts.sort(String.CASE_INSENSITIVE_ORDER);
+		final Map<String, Integer> indexes = new HashMap<String, Integer>(_parts.size() * 2);
+		for (int i = 0; i < _parts.size(); ++i) {
+			indexes.put(_parts.get(i), i);
+		}
+		_parents = new int[_parts.size()];
+		for (int i = 0; i < _parts.size(); ++i) {
+			final String part = _parts.get(i);
+			final int dot = part.lastIndexOf('.', part.length() - 2);
+			_parents[i] = (dot >= 0 ? indexes.get(part.substring(0, dot + 1)) : -1);
+		}
+		_variableParts = new int[pVariables.size()];
+		for (int i = 0; i < pVariables.size(); ++i) {
+			_variableParts[i] = indexes.get(pVariables.get(i).getText());
+		}
+	}
+
+	/**
+	 * @return the number of parts
+	 */
+	public int size()
+	{
+		return _parts.size();
+	}
+
+	/**
+	 * Find the parts starting with a prefix ignoring case. A part weighs as much as the heaviest variable starting
+	 * with it.
+	 *
+	 * @param pPrefix   the prefix
+	 * @param pWeight   the weight of a variable
+	 * @param pConsumer receives the parts sorted ignoring case with their weight
+	 */
+	public void findParts(final String pPrefix, final ToIntFunction<LToken> pWeight,
+			final ObjIntConsumer<String> pConsumer)
+	{
+		final int partsFrom = LNames.lowerBound(_parts, Function.identity(), pPrefix);
+		final int partsTo = LNames.upperBound(_parts, Function.identity(), pPrefix, partsFrom);
+		final int[] weights = new int[partsTo - partsFrom];
+		Arrays.fill(weights, Integer.MIN_VALUE);
+		final int variablesFrom = LNames.lowerBound(_variables, LToken::getText, pPrefix);
+		final int variablesTo = LNames.upperBound(_variables, LToken::getText, pPrefix, variablesFrom);
+		for (int i = variablesFrom; i < variablesTo; ++i) {
+			final int part = _variableParts[i] - partsFrom;
+			weights[part] = Math.max(weights[part], pWeight.applyAsInt(_variables.get(i)));
+		}
+		// a stem comes before its tails, so the tails pass their weight on before the stem is passed on
+		for (int i = partsTo - 1; i >= partsFrom; --i) {
+			final int parent = _parents[i];
+			if (parent >= partsFrom) {
+				weights[parent - partsFrom] = Math.max(weights[parent - partsFrom], weights[i - partsFrom]);
+			}
+		}
+		for (int i = partsFrom; i < partsTo; ++i) {
+			pConsumer.accept(_parts.get(i), weights[i - partsFrom]);
+		}
+	}
+}
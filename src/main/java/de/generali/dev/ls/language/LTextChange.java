@@ -0,0 +1,66 @@
+/**
+ *  Copyright (c) 2020 Generali Deutschland AG - Team Informatik
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v2.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *  Markus Holzem <markus.holzem@generali.com>
+ */
+package de.generali.dev.ls.language;
+
+import lombok.Value;
+
+/**
+ * LTextChange describes the region of a text that changed since it was parsed. The region starts at the same offset in
+ * the old and in the new text, it ends at <code>oldEnd</code> in the old and at <code>newEnd</code> in the new text.
+ * The text in front of and behind the region is unchanged.
+ */
+@Value
+public class LTextChange
+{
+	private final int start;
+	private final int oldEnd;
+	private final int newEnd;
+
+	/**
+	 * Create the change for a single edit.
+	 *
+	 * @param pStart          offset of the first replaced character
+	 * @param pEnd            offset behind the last replaced character
+	 * @param pInsertedLength length of the inserted text
+	 * @return the change
+	 */
+	public static LTextChange of(final int pStart, final int pEnd, final int pInsertedLength)
+	{
+		return new LTextChange(pStart, pEnd, pStart + pInsertedLength);
+	}
+
+	/**
+	 * Merge a further edit of the new text into this change.
+	 *
+	 * @param pStart          offset of the first replaced character in the new text
+	 * @param pEnd            offset behind the last replaced character in the new text
+	 * @param pInsertedLength length of the inserted text
+	 * @return the change covering both edits
+	 */
+	public LTextChange merge(final int pStart, final int pEnd, final int pInsertedLength)
+	{
+		final int mergedStart = Math.min(start, pStart);
+		final int mergedOldEnd = Math.max(oldEnd, pEnd - getDelta());
+		final int mergedNewEnd = Math.max(newEnd, pEnd) + pInsertedLength - (pEnd - pStart);
+		return new LTextChange(mergedStart, mergedOldEnd, mergedNewEnd);
+	}
+
+	/**
+	 * @return the difference of the text length after the change
+	 */
+	public int getDelta()
+	{
+		return newEnd - oldEnd;
+	}
+}
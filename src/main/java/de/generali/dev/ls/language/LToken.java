@@ -14,65 +14,143 @@
 package de.generali.dev.ls.language;
 
 /**
- * LToken represents a token returned from the scanner
+ * LToken represents a token returned from the scanner. A token of a {@link LModel} is a view on a row of its
+ * {@link LTokenTable}, a token created with the constructor holds its values itself.
+ * <p>
+ * Tokens are equal if they have the same type, position and text, no matter whether they are views or not.
  */
 public class LToken
 {
+	private final LTokenTable _table;
+	private final int _index;
 	private final LTokenType _type;
 	private final String _text;
 	private final int _line;
 	private final int _column;
 	private final long _charBegin;
-	private final long _charEnd;
 
 	public LToken(final LTokenType pType, final String pText, final int pLine, final int pColumn,
 			final long pCharBegin) {
-		this(pType, pText, pLine, pColumn, pCharBegin, pCharBegin + pText.length());
-	}
-
-	public LToken(final LTokenType pType, final String pText, final int pLine, final int pColumn, final long pCharBegin,
-			final long pCharEnd) {
+		_table = null;
+		_index = -1;
 		_type = pType;
 		_text = pText;
 		_line = pLine;
 		_column = pColumn;
 		_charBegin = pCharBegin;
-		_charEnd = pCharEnd;
+	}
+
+	LToken(final LTokenTable pTable, final int pIndex) {
+		_table = pTable;
+		_index = pIndex;
+		_type = null;
+		_text = null;
+		_line = 0;
+		_column = 0;
+		_charBegin = 0L;
 	}
 
 	public LTokenType getType()
 	{
-		return _type;
+		return (_table != null ? _table.getType(_index) : _type);
+	}
+
+	/**
+	 * @return the keyword or function of the token or <code>null</code> if the token is none
+	 */
+	public LKeyword getKeyword()
+	{
+		if (_table != null) {
+			return _table.getKeyword(_index);
+		}
+		final LKeyword keyword = LKeyword.lookup(_text);
+		return (keyword != null && keyword.getTokenType() == _type ? keyword : null);
 	}
 
 	public String getText()
 	{
-		return _text;
+		return (_table != null ? _table.getText(_index) : _text);
 	}
 
 	public int getLine()
 	{
-		return _line;
+		return (_table != null ? _table.getLine(_index) : _line);
 	}
 
 	public int getColumn()
 	{
-		return _column;
+		return (_table != null ? _table.getColumn(_index) : _column);
 	}
 
 	public int getLength()
 	{
-		return _text.length();
+		return (_table != null ? _table.getLength(_index) : _text.length());
 	}
 
 	public long getCharBegin()
 	{
-		return _charBegin;
+		return (_table != null ? _table.getCharBegin(_index) : _charBegin);
 	}
 
 	public long getCharEnd()
 	{
-		return _charEnd;
+		return getCharBegin() + getLength();
+	}
+
+	/**
+	 * @return the index of the token in its table (or <code>-1</code> if it is not in a table)
+	 */
+	int getIndex()
+	{
+		return _index;
+	}
+
+	/**
+	 * Create a copy of this token moved by a number of lines and characters. The column does not change.
+	 *
+	 * @param pLines the number of lines to move
+	 * @param pChars the number of characters to move
+	 * @return the moved token (or this token if it does not move at all)
+	 */
+	public LToken moveBy(final int pLines, final long pChars)
+	{
+		if (pLines == 0 && pChars == 0L) {
+			return this;
+		}
+		return new LToken(getType(), getText(), getLine() + pLines, getColumn(), getCharBegin() + pChars);
+	}
+
+	@Override
+	public boolean equals(final Object pObject)
+	{
+		if (this == pObject) {
+			return true;
+		}
+		if (!(pObject instanceof LToken)) {
+			return false;
+		}
+		final LToken other = (LToken) pObject;
+		return getType() == other.getType() && getLine() == other.getLine() && getColumn() == other.getColumn()
+				&& getCharBegin() == other.getCharBegin() && getText().equals(other.getText());
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hash(getType(), getLine(), getColumn(), getCharBegin(), getLength());
+	}
+
+	/**
+	 * The hash of a token without its text, so the {@link LTokenTable} computes it without creating the text.
+	 */
+	static int hash(final LTokenType pType, final int pLine, final int pColumn, final long pCharBegin,
+			final int pLength)
+	{
+		int hash = pType.ordinal();
+		hash = 31 * hash + pLine;
+		hash = 31 * hash + pColumn;
+		hash = 31 * hash + Long.hashCode(pCharBegin);
+		return 31 * hash + pLength;
 	}
 
 	@Override
@@ -80,17 +158,17 @@ public class LToken
 	{
 		final StringBuilder sb = new StringBuilder();
 		sb.append("LToken(");
-		sb.append(_type.toString());
+		sb.append(getType().toString());
 		sb.append(":(");
-		sb.append(_line);
+		sb.append(getLine());
 		sb.append(":");
-		sb.append(_column);
+		sb.append(getColumn());
 		sb.append("):(");
-		sb.append(_charBegin);
+		sb.append(getCharBegin());
 		sb.append(":");
-		sb.append(_charEnd);
+		sb.append(getCharEnd());
 		sb.append("):\"");
-		sb.append(_text.replaceAll("\n", "\\\\n").replaceAll("\r", "\\\\r").replaceAll("\t", "\\\\t"));
+		sb.append(getText().replaceAll("\n", "\\\\n").replaceAll("\r", "\\\\r").replaceAll("\t", "\\\\t"));
 		sb.append("\")");
 		return sb.toString();
 	}
@@ -0,0 +1,323 @@
+/**
+ *  Copyright (c) 2020 Generali Deutschland AG - Team Informatik
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v2.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *  Markus Holzem <markus.holzem@generali.com>
+ */
+package de.generali.dev.ls.language;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * LTokenTable stores the tokens of a text column by column in primitive arrays. The text of a token is not stored, it
+ * is taken from the source when it is needed. {@link #get(int)} returns a {@link LToken} which is a view on a row of
+ * the table.
+ */
+public final class LTokenTable extends AbstractList<LToken> implements RandomAccess
+{
+	private static final LTokenType[] TYPES = LTokenType.values();
+	private static final LKeyword[] KEYWORDS = LKeyword.values();
+	private static final int MIN_CAPACITY = 16;
+	private final String _source;
+	private byte[] _types;
+	/** the ordinal of the keyword plus one, 0 for no keyword */
+	private byte[] _keywords;
+	private int[] _charBegins;
+	private int[] _lengths;
+	private int[] _lines;
+	private int[] _columns;
+	private int _size;
+	/** the index of the first token starting on or behind a line, one more entry than lines */
+	private int[] _lineTokens;
+
+	/**
+	 * Constructor
+	 *
+	 * @param pSource the text of the tokens
+	 */
+	public LTokenTable(final String pSource) {
+		_source = pSource;
+		// a token has about four characters on average
+		final int capacity = Math.max(MIN_CAPACITY, pSource.length() / 4);
+		_types = new byte[capacity];
+		_keywords = new byte[capacity];
+		_charBegins = new int[capacity];
+		_lengths = new int[capacity];
+		_lines = new int[capacity];
+		_columns = new int[capacity];
+	}
+
+	/**
+	 * Append a token which is no keyword or function.
+	 *
+	 * @param pType      the type
+	 * @param pCharBegin the offset of the first character in the source
+	 * @param pLength    the number of characters
+	 * @param pLine      the line
+	 * @param pColumn    the column
+	 */
+	public void add(final LTokenType pType, final long pCharBegin, final int pLength, final int pLine,
+			final int pColumn)
+	{
+		add(pType, null, pCharBegin, pLength, pLine, pColumn);
+	}
+
+	/**
+	 * Append a token.
+	 *
+	 * @param pType      the type
+	 * @param pKeyword   the keyword or function of the token (may be <code>null</code>)
+	 * @param pCharBegin the offset of the first character in the source
+	 * @param pLength    the number of characters
+	 * @param pLine      the line
+	 * @param pColumn    the column
+	 */
+	public void add(final LTokenType pType, final LKeyword pKeyword, final long pCharBegin, final int pLength,
+			final int pLine, final int pColumn)
+	{
+		ensureCapacity(_size + 1);
+		_lineTokens = null;
+		_types[_size] = (byte) pType.ordinal();
+		_keywords[_size] = (byte) (pKeyword != null ? pKeyword.ordinal() + 1 : 0);
+		_charBegins[_size] = (int) pCharBegin;
+		_lengths[_size] = pLength;
+		_lines[_size] = pLine;
+		_columns[_size] = pColumn;
+		++_size;
+	}
+
+	/**
+	 * Append a token. Only the position of the token is stored, its text has to be the same in the source.
+	 */
+	@Override
+	public boolean add(final LToken pToken)
+	{
+		add(pToken.getType(), pToken.getKeyword(), pToken.getCharBegin(), pToken.getLength(), pToken.getLine(),
+				pToken.getColumn());
+		return true;
+	}
+
+	/**
+	 * Append the tokens of another table moved by a number of lines and characters. The columns do not change.
+	 *
+	 * @param pTable the other table
+	 * @param pFrom  the index of the first token to append
+	 * @param pTo    the index behind the last token to append
+	 * @param pLines the number of lines to move
+	 * @param pChars the number of characters to move
+	 */
+	public void addAll(final LTokenTable pTable, final int pFrom, final int pTo, final int pLines, final long pChars)
+	{
+		final int count = pTo - pFrom;
+		ensureCapacity(_size + count);
+		_lineTokens = null;
+		System.arraycopy(pTable._types, pFrom, _types, _size, count);
+		System.arraycopy(pTable._keywords, pFrom, _keywords, _size, count);
+		System.arraycopy(pTable._lengths, pFrom, _lengths, _size, count);
+		System.arraycopy(pTable._columns, pFrom, _columns, _size, count);
+		for (int i = 0; i < count; ++i) {
+			_charBegins[_size + i] = pTable._charBegins[pFrom + i] + (int) pChars;
+			_lines[_size + i] = pTable._lines[pFrom + i] + pLines;
+		}
+		_size += count;
+	}
+
+	/**
+	 * Release the capacity not used by the tokens.
+	 */
+	public void trimToSize()
+	{
+		if (_size < _types.length) {
+			_types = Arrays.copyOf(_types, _size);
+			_keywords = Arrays.copyOf(_keywords, _size);
+			_charBegins = Arrays.copyOf(_charBegins, _size);
+			_lengths = Arrays.copyOf(_lengths, _size);
+			_lines = Arrays.copyOf(_lines, _size);
+			_columns = Arrays.copyOf(_columns, _size);
+		}
+	}
+
+	/**
+	 * Build the index of the first token of every line, so {@link #locate(int, int)} finds the tokens of a line
+	 * directly. The index is dropped when a token is appended.
+	 */
+	public void buildLineIndex()
+	{
+		final int numberOfLines = (_size > 0 ? _lines[_size - 1] + 1 : 0);
+		final int[] lineTokens = new int[numberOfLines + 1];
+		int line = 0;
+		for (int i = 0; i < _size; ++i) {
+			while (line <= _lines[i]) {
+				lineTokens[line++] = i;
+			}
+		}
+		lineTokens[numberOfLines] = _size;
+		_lineTokens = lineTokens;
+	}
+
+	@Override
+	public LToken get(final int pIndex)
+	{
+		if (pIndex < 0 || pIndex >= _size) {
+			throw new IndexOutOfBoundsException("Index: " + pIndex + ", Size: " + _size);
+		}
+		return new LToken(this, pIndex);
+	}
+
+	@Override
+	public int size()
+	{
+		return _size;
+	}
+
+	/**
+	 * Tables are compared by their columns without creating the token views, other lists token by token.
+	 */
+	@Override
+	public boolean equals(final Object pObject)
+	{
+		if (this == pObject) {
+			return true;
+		}
+		if (!(pObject instanceof LTokenTable)) {
+			return super.equals(pObject);
+		}
+		final LTokenTable other = (LTokenTable) pObject;
+		if (_size != other._size || !_source.equals(other._source)) {
+			return false;
+		}
+		for (int i = 0; i < _size; ++i) {
+			if (_types[i] != other._types[i] || _charBegins[i] != other._charBegins[i]
+					|| _lengths[i] != other._lengths[i] || _lines[i] != other._lines[i]
+					|| _columns[i] != other._columns[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The hash of the list of tokens as defined by {@link java.util.List#hashCode()}, computed from the columns.
+	 */
+	@Override
+	public int hashCode()
+	{
+		int hash = 1;
+		for (int i = 0; i < _size; ++i) {
+			hash = 31 * hash + LToken.hash(getType(i), _lines[i], _columns[i], _charBegins[i], _lengths[i]);
+		}
+		return hash;
+	}
+
+	public String getSource()
+	{
+		return _source;
+	}
+
+	public LTokenType getType(final int pIndex)
+	{
+		return TYPES[_types[pIndex]];
+	}
+
+	/**
+	 * @return the keyword or function of the token or <code>null</code> if the token is none
+	 */
+	public LKeyword getKeyword(final int pIndex)
+	{
+		final int keyword = _keywords[pIndex];
+		return (keyword != 0 ? KEYWORDS[keyword - 1] : null);
+	}
+
+	public String getText(final int pIndex)
+	{
+		final int charBegin = _charBegins[pIndex];
+		return _source.substring(charBegin, charBegin + _lengths[pIndex]);
+	}
+
+	public int getLine(final int pIndex)
+	{
+		return _lines[pIndex];
+	}
+
+	public int getColumn(final int pIndex)
+	{
+		return _columns[pIndex];
+	}
+
+	public int getLength(final int pIndex)
+	{
+		return _lengths[pIndex];
+	}
+
+	public long getCharBegin(final int pIndex)
+	{
+		return _charBegins[pIndex];
+	}
+
+	public long getCharEnd(final int pIndex)
+	{
+		return (long) _charBegins[pIndex] + _lengths[pIndex];
+	}
+
+	/**
+	 * Find the token at a position. A token covers the columns of its text on the line it starts.
+	 *
+	 * @param pLine   the line
+	 * @param pColumn the column
+	 * @return the index of the token or <code>-1</code> if no token covers the position
+	 */
+	public int locate(final int pLine, final int pColumn)
+	{
+		int low = 0;
+		int high = _size - 1;
+		if (_lineTokens != null) {
+			if (pLine < 0 || pLine >= _lineTokens.length - 1) {
+				return -1;
+			}
+			// only the tokens starting on the line are searched
+			low = _lineTokens[pLine];
+			high = _lineTokens[pLine + 1] - 1;
+		}
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			final int line = _lines[mid];
+			final int column = _columns[mid];
+			final int cmp;
+			if (line != pLine) {
+				cmp = (line < pLine ? -1 : 1);
+			} else if (column <= pColumn && pColumn < column + _lengths[mid]) {
+				return mid;
+			} else {
+				cmp = (column < pColumn ? -1 : 1);
+			}
+			if (cmp < 0) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return -1;
+	}
+
+	private void ensureCapacity(final int pCapacity)
+	{
+		if (pCapacity > _types.length) {
+			final int capacity = Math.max(pCapacity, _types.length + (_types.length >> 1));
+			_types = Arrays.copyOf(_types, capacity);
+			_keywords = Arrays.copyOf(_keywords, capacity);
+			_charBegins = Arrays.copyOf(_charBegins, capacity);
+			_lengths = Arrays.copyOf(_lengths, capacity);
+			_lines = Arrays.copyOf(_lines, capacity);
+			_columns = Arrays.copyOf(_columns, capacity);
+		}
+	}
+}
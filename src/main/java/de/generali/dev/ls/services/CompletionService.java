@@ -15,9 +15,13 @@ package de.generali.dev.ls.services;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 import org.eclipse.lsp4j.CompletionItem;
 import org.eclipse.lsp4j.CompletionItemKind;
@@ -29,22 +33,44 @@ import org.eclipse.lsp4j.ServerCapabilities;
 import org.eclipse.lsp4j.TextEdit;
 import org.eclipse.lsp4j.jsonrpc.CancelChecker;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import de.generali.dev.ls.language.LKeyword;
 import de.generali.dev.ls.language.LModel;
+import de.generali.dev.ls.language.LNames;
 import de.generali.dev.ls.language.LToken;
 import de.generali.dev.ls.language.LTokenType;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * CompletionService
+ * <p>
+ * The list for a symbol is complete, the client filters it while the symbol grows. As letters are trigger characters
+ * the client may ask again anyway, then the candidates of the previous request in the document are filtered by the
+ * {@link LCompletionSession}.
+ * <p>
+ * The items only have a label, a kind and the text edit. The detail and documentation of the item the user selects
+ * are added by {@link #resolveCompletionItem(CancelChecker, LModel, CompletionItem)}, the request for it does not
+ * name the document, so the uri and version of the model are sent as the data of the item.
+ * <p>
+ * Only the best ranked candidates up to the completion limit are sent, see {@link LCompletionRanking}. If candidates
+ * are left out the list is incomplete, so the client asks again while the symbol grows.
  */
 @Slf4j
 public class CompletionService extends LService
 {
-	public CompletionService(final LServices pLServices, final ServerCapabilities pServerCapabilities) {
+	private final Map<String, LCompletionSession> _sessions = new ConcurrentHashMap<String, LCompletionSession>();
+	private final int _completionLimit;
+
+	public CompletionService(final LServices pLServices, final ServerCapabilities pServerCapabilities,
+			final int pCompletionLimit) {
 		super(pLServices);
+		_completionLimit = pCompletionLimit;
 		// Set the completion options
 		final CompletionOptions completionOptions = new CompletionOptions();
 		completionOptions.setTriggerCharacters(Arrays.asList(COMPLETION_TRIGGER_CHARACTERS));
+		completionOptions.setResolveProvider(true);
 		pServerCapabilities.setCompletionProvider(completionOptions);
 	}
 
@@ -56,127 +82,247 @@ public class CompletionService extends LService
 		log.debug("complete for {} at ({},{})", pLModel.getUri(), line, column);
 		final int tokenPosition = pLModel.locateCompletionToken(line, column);
 		log.debug("match ({},{}) with token {}", line, column, pLModel.getToken(tokenPosition));
-		final List<CompletionItem> completionItems = new ArrayList<>();
-		final LTokenType tokenType = pLModel.getToken(tokenPosition).getType();
+		final LToken token = pLModel.getToken(tokenPosition);
+		final LTokenType tokenType = token.getType();
 		final boolean isComment = (tokenType == LTokenType.COMMENT || tokenType == LTokenType.COMMENT_UNCLOSED);
-		if (!isComment) {
-			addVariablesToCompletionItems(pCancelChecker, pLModel, tokenPosition, pCursorPosition, completionItems);
-			addLabelsToCompletionItems(pCancelChecker, pLModel, tokenPosition, pCursorPosition, completionItems);
-			addKeywordsToCompletionItems(pCancelChecker, pLModel, tokenPosition, pCursorPosition, completionItems);
-			addFunctionsToCompletionItems(pCancelChecker, pLModel, tokenPosition, pCursorPosition, completionItems);
+		// all candidates of a symbol start with its text, so the list is complete while the symbol grows
+		final boolean isSymbol = (tokenType == LTokenType.IDENTIFIER || tokenType == LTokenType.KEYWORD
+				|| tokenType == LTokenType.FUNCTION);
+		final boolean isLikeWhitespace = (tokenType == LTokenType.LEFT_PARENTHESIS
+				|| tokenType == LTokenType.WHITESPACE);
+		final String prefix = (isLikeWhitespace ? "" : token.getText());
+		List<LCompletionCandidate> candidates = new ArrayList<>();
+		UnaryOperator<CompletionItem> copy = UnaryOperator.identity();
+		final LCompletionSession session = _sessions.get(pLModel.getUri());
+		if (isSymbol && session != null && session.canFilter(pLModel, token)) {
+			candidates = session.filter(token);
+			copy = candidate -> copyForToken(candidate, token, pCursorPosition);
+			log.debug("filtered {} candidates of the previous completion", candidates.size());
+		} else if (!isComment) {
+			final LCompletionRanking ranking = new LCompletionRanking(pLModel, line, prefix);
+			addVariablesToCompletionItems(pCancelChecker, pLModel, tokenPosition, pCursorPosition, ranking,
+					candidates);
+			addLabelsToCompletionItems(pCancelChecker, pLModel, tokenPosition, pCursorPosition, ranking, candidates);
+			addKeywordsToCompletionItems(pCancelChecker, pLModel, tokenPosition, pCursorPosition, ranking, candidates);
+			addFunctionsToCompletionItems(pCancelChecker, pLModel, tokenPosition, pCursorPosition, ranking,
+					candidates);
+			if (isSymbol) {
+				_sessions.put(pLModel.getUri(), new LCompletionSession(pLModel, token, candidates));
+			} else {
+				_sessions.remove(pLModel.getUri());
+			}
+		}
+		final List<CompletionItem> completionItems = LCompletionRanking.top(candidates, prefix, _completionLimit,
+				copy);
+		// the sent items are new or copies, so they are only changed here
+		final JsonObject data = new JsonObject();
+		data.addProperty(DATA_URI, pLModel.getUri());
+		data.addProperty(DATA_VERSION, pLModel.getVersion());
+		for (final CompletionItem completionItem : completionItems) {
+			completionItem.setData(data);
 		}
 		final CompletionList completionList = new CompletionList();
-		completionList.setIsIncomplete(true);
+		completionList.setIsIncomplete(!isSymbol || completionItems.size() < candidates.size());
 		completionList.setItems(completionItems);
 		return completionList;
 	}
 
+	/**
+	 * Add the detail and documentation to a completion item.
+	 *
+	 * @param pCancelChecker  the cancel checker (may be <code>null</code>)
+	 * @param pLModel         the model of the document of the item (may be <code>null</code>)
+	 * @param pCompletionItem the item
+	 * @return the item
+	 */
+	public CompletionItem resolveCompletionItem(final CancelChecker pCancelChecker, final LModel pLModel,
+			final CompletionItem pCompletionItem)
+	{
+		final String label = pCompletionItem.getLabel();
+		final CompletionItemKind kind = pCompletionItem.getKind();
+		if (kind == CompletionItemKind.Variable) {
+			pCompletionItem.setDetail("Variable " + label);
+			final LToken variable = (pLModel != null ? findFirstAssignment(pLModel.findVariables(label), label) : null);
+			if (variable != null) {
+				pCompletionItem.setDocumentation(getLineText(pLModel, variable));
+			}
+		} else if (kind == CompletionItemKind.Method) {
+			pCompletionItem.setDetail("Label " + label);
+			final LToken labelToken = (pLModel != null ? findFirstAssignment(pLModel.findLabels(label), label) : null);
+			if (labelToken != null) {
+				pCompletionItem.setDocumentation(getLineText(pLModel, labelToken));
+			}
+		} else if (kind == CompletionItemKind.Function) {
+			final LKeyword function = LKeyword.lookup(label);
+			pCompletionItem.setDetail(function != null ? function.getSignature() : "Function " + label);
+		} else if (kind == CompletionItemKind.Keyword) {
+			pCompletionItem.setDetail("Keyword " + label);
+		}
+		return pCompletionItem;
+	}
+
+	/**
+	 * Find the first assignment of a name. The parser keeps only the first token of each name, so it is the token with
+	 * the name ignoring case. A stem part is no name of its own, it is documented by the first assignment of a
+	 * variable of the stem.
+	 *
+	 * @param pNames the tokens starting with the name
+	 * @param pName  the name
+	 * @return the token of the first assignment (or <code>null</code> if the name is not assigned)
+	 */
+	private static LToken findFirstAssignment(final List<LToken> pNames, final String pName)
+	{
+		final boolean isStem = pName.endsWith(".");
+		LToken firstAssignment = null;
+		for (final LToken name : pNames) {
+			if (name.getText().equalsIgnoreCase(pName)) {
+				return name;
+			}
+			if (isStem && (firstAssignment == null || name.getCharBegin() < firstAssignment.getCharBegin())) {
+				firstAssignment = name;
+			}
+		}
+		return firstAssignment;
+	}
+
+	/**
+	 * @return the uri of the document of a completion item (or <code>null</code> if it has no data)
+	 */
+	public static String getDataUri(final CompletionItem pCompletionItem)
+	{
+		final JsonElement uri = getData(pCompletionItem, DATA_URI);
+		return (uri != null ? uri.getAsString() : null);
+	}
+
+	/**
+	 * @return the version of the model of a completion item (or -1 if it has no data)
+	 */
+	public static int getDataVersion(final CompletionItem pCompletionItem)
+	{
+		final JsonElement version = getData(pCompletionItem, DATA_VERSION);
+		return (version != null ? version.getAsInt() : -1);
+	}
+
+	/**
+	 * The data is sent back by the client as a {@link JsonElement}.
+	 */
+	private static JsonElement getData(final CompletionItem pCompletionItem, final String pName)
+	{
+		final Object data = pCompletionItem.getData();
+		if (data instanceof JsonObject) {
+			final JsonElement element = ((JsonObject) data).get(pName);
+			return (element != null && element.isJsonPrimitive() ? element : null);
+		}
+		return null;
+	}
+
+	/**
+	 * @return the text of the line of a token without the line break
+	 */
+	private static String getLineText(final LModel pLModel, final LToken pToken)
+	{
+		final String text = pLModel.getText();
+		final int lineStart = (int) pToken.getCharBegin() - pToken.getColumn();
+		int lineEnd = lineStart;
+		while (lineEnd < text.length() && text.charAt(lineEnd) != '\n' && text.charAt(lineEnd) != '\r') {
+			++lineEnd;
+		}
+		return pLModel.getText(lineStart, lineEnd).toString().trim();
+	}
+
+	/**
+	 * Forget the candidates of the last completion in a document.
+	 *
+	 * @param pUri the uri of the document
+	 */
+	public void cleanSession(final String pUri)
+	{
+		_sessions.remove(pUri);
+	}
+
+	/**
+	 * Copy a candidate of a previous completion with a text edit replacing the current token. The candidates of the
+	 * session are never changed, they may still be sent as the result of the previous completion.
+	 */
+	private CompletionItem copyForToken(final CompletionItem pCandidate, final LToken pToken,
+			final Position pCursorPosition)
+	{
+		final CompletionItem completionItem = new CompletionItem(pCandidate.getLabel());
+		completionItem.setKind(pCandidate.getKind());
+		completionItem.setTextEdit(getTextEditForToken(pToken, pCursorPosition, pCandidate.getTextEdit().getNewText()));
+		return completionItem;
+	}
+
 	private void addVariablesToCompletionItems(final CancelChecker pCancelChecker, final LModel pLModel,
-			final int pTokenPosition, final Position pCursorPosition, final List<CompletionItem> pCompletionItems)
+			final int pTokenPosition, final Position pCursorPosition, final LCompletionRanking pRanking,
+			final List<LCompletionCandidate> pCandidates)
 	{
 		final LToken token = pLModel.getToken(pTokenPosition);
 		final String tokenText = token.getText();
-		final String tokenTextLowerCase = tokenText.toLowerCase();
 		final boolean isLikeWhitespace = (token.getType() == LTokenType.LEFT_PARENTHESIS
 				|| token.getType() == LTokenType.WHITESPACE);
-		final Set<String> collected = new HashSet<String>();
-		for (final LToken variable : pLModel.getVariables()) {
+		final int minLength = tokenText.length();
+		// take only variables and stem parts with a similar text, a stem part weighs as much as its best variable
+		pLModel.getStemTree().findParts(isLikeWhitespace ? "" : tokenText, pRanking::getWeight, (part, weight) -> {
 			if (pCancelChecker != null)
 				pCancelChecker.checkCanceled();
-			final String variableText = variable.getText();
-			final String variableTextLowerCase = variableText.toLowerCase();
-			// take only variables with a similar text
-			if (isLikeWhitespace || variableTextLowerCase.startsWith(tokenTextLowerCase)) {
-				if (!collected.contains(variableText)) {
-					addVariableWithStemParts(pCompletionItems, token, pCursorPosition, variableText, tokenText.length(),
-							collected);
-				}
-			}
-		}
-		collected.clear();
-	}
-
-	private void addVariableWithStemParts(final List<CompletionItem> pCompletionItems, final LToken pToken,
-			final Position pCursorPosition, final String variableText, final int pMinLength,
-			final Set<String> pCollected)
-	{
-		int substringEnd = -1;
-		do {
-			substringEnd = variableText.indexOf('.', substringEnd + 1);
-			final String part = ((substringEnd < 0) ? variableText : variableText.substring(0, substringEnd + 1));
-			if (!pCollected.contains(part) && part.length() > pMinLength) {
+			if (part.length() > minLength) {
 				final CompletionItem completionItem = new CompletionItem(part);
 				completionItem.setKind(CompletionItemKind.Variable);
-				completionItem.setInsertText(part);
-				completionItem.setTextEdit(getTextEditForToken(pToken, pCursorPosition, part));
-				completionItem.setDetail("Variable " + part);
-				pCompletionItems.add(completionItem);
-				pCollected.add(part);
+				completionItem.setTextEdit(getTextEditForToken(token, pCursorPosition, part));
+				pCandidates.add(new LCompletionCandidate(completionItem, weight));
 			}
-		} while (substringEnd >= 0);
+		});
 	}
 
 	private void addLabelsToCompletionItems(final CancelChecker pCancelChecker, final LModel pLModel,
-			final int pTokenPosition, final Position pCursorPosition, final List<CompletionItem> pCompletionItems)
+			final int pTokenPosition, final Position pCursorPosition, final LCompletionRanking pRanking,
+			final List<LCompletionCandidate> pCandidates)
 	{
 		final LToken token = pLModel.getToken(pTokenPosition);
 		final String tokenText = token.getText();
-		final String tokenTextLowerCase = tokenText.toLowerCase();
 		final boolean isLikeWhitespace = (token.getType() == LTokenType.LEFT_PARENTHESIS
 				|| token.getType() == LTokenType.WHITESPACE);
-		for (final LToken label : pLModel.getLabels()) {
+		for (final LToken label : pLModel.findLabels(isLikeWhitespace ? "" : tokenText)) {
 			if (pCancelChecker != null)
 				pCancelChecker.checkCanceled();
 			final String labelText = label.getText();
-			final String labelTextLowerCase = labelText.toLowerCase();
-			if (isLikeWhitespace || labelTextLowerCase.startsWith(tokenTextLowerCase)) {
-				final CompletionItem completionItem = new CompletionItem(labelText);
-				completionItem.setKind(CompletionItemKind.Method);
-				completionItem.setTextEdit(getTextEditForToken(token, pCursorPosition, labelText));
-				completionItem.setDetail("Label " + label.getText());
-				pCompletionItems.add(completionItem);
-			}
+			final CompletionItem completionItem = new CompletionItem(labelText);
+			completionItem.setKind(CompletionItemKind.Method);
+			completionItem.setTextEdit(getTextEditForToken(token, pCursorPosition, labelText));
+			pCandidates.add(new LCompletionCandidate(completionItem, pRanking.getWeight(label)));
 		}
 	}
 
 	private void addFunctionsToCompletionItems(final CancelChecker pCancelChecker, final LModel pLModel,
-			final int pTokenPosition, final Position pCursorPosition, final List<CompletionItem> pCompletionItems)
+			final int pTokenPosition, final Position pCursorPosition, final LCompletionRanking pRanking,
+			final List<LCompletionCandidate> pCandidates)
 	{
 		final LToken token = pLModel.getToken(pTokenPosition);
 		final String tokenText = token.getText();
-		final String tokenTextLowerCase = tokenText.toLowerCase();
-		for (final String function : FUNCTIONS) {
+		for (final LKeyword function : LNames.findByPrefix(SORTED_FUNCTIONS, LKeyword::getLabel, tokenText)) {
 			if (pCancelChecker != null)
 				pCancelChecker.checkCanceled();
-			final String functionLowerCase = function.toLowerCase();
-			if (functionLowerCase.startsWith(tokenTextLowerCase)) {
-				final CompletionItem completionItem = new CompletionItem(function);
-				completionItem.setKind(CompletionItemKind.Function);
-				completionItem.setTextEdit(getTextEditForToken(token, pCursorPosition, function));
-				completionItem.setDetail("Function " + function);
-				pCompletionItems.add(completionItem);
-			}
+			final CompletionItem completionItem = new CompletionItem(function.getLabel());
+			completionItem.setKind(CompletionItemKind.Function);
+			completionItem.setTextEdit(getTextEditForToken(token, pCursorPosition, function.getLabel()));
+			pCandidates.add(new LCompletionCandidate(completionItem, pRanking.getWeight(function)));
 		}
 	}
 
 	private void addKeywordsToCompletionItems(final CancelChecker pCancelChecker, final LModel pLModel,
-			final int pTokenPosition, final Position pCursorPosition, final List<CompletionItem> pCompletionItems)
+			final int pTokenPosition, final Position pCursorPosition, final LCompletionRanking pRanking,
+			final List<LCompletionCandidate> pCandidates)
 	{
 		final LToken token = pLModel.getToken(pTokenPosition);
 		final String tokenText = token.getText();
-		final String tokenTextLowerCase = tokenText.toLowerCase();
-		for (final String keyword : KEYWORDS) {
+		for (final LKeyword keyword : LNames.findByPrefix(SORTED_KEYWORDS, LKeyword::getLabel, tokenText)) {
 			if (pCancelChecker != null)
 				pCancelChecker.checkCanceled();
-			final String keyWordLowerCase = keyword.toLowerCase();
-			if (keyWordLowerCase.startsWith(tokenTextLowerCase)) {
-				final CompletionItem completionItem = new CompletionItem(keyword);
-				completionItem.setKind(CompletionItemKind.Keyword);
-				completionItem.setInsertText(keyword);
-				completionItem.setTextEdit(getTextEditForToken(token, pCursorPosition, keyword));
-				completionItem.setDetail("Keyword " + keyword);
-				pCompletionItems.add(completionItem);
-			}
+			final CompletionItem completionItem = new CompletionItem(keyword.getLabel());
+			completionItem.setKind(CompletionItemKind.Keyword);
+			completionItem.setTextEdit(getTextEditForToken(token, pCursorPosition, keyword.getLabel()));
+			pCandidates.add(new LCompletionCandidate(completionItem, pRanking.getWeight(keyword)));
 		}
 	}
 
@@ -206,132 +352,22 @@ public class CompletionService extends LService
 			"A", "B", "C", "D", "E", "F", "G", "H", "I", "J", "K", "L", "M", "O", "P", "Q", "R", "S", "T", "U", "V",
 			"W", "X", "Y", "Z", //
 	};
-	private static String[] FUNCTIONS = { //
-			"abbrev", //
-			"abs", //
-			"address", //
-			"arg", //
-			"b2x", //
-			"bitand", //
-			"bitor", //
-			"bitxor", //
-			"c2d", //
-			"c2x", //
-			"center", //
-			"centre", //
-			"compare", //
-			"condition", //
-			"copies", //
-			"d2c", //
-			"d2x", //
-			"datatype", //
-			"date", //
-			"dbcs", //
-			"delstr", //
-			"delword", //
-			"digits", //
-			"errortext", //
-			"externals", //
-			"find", //
-			"form", //
-			"format", //
-			"fuzz", //
-			"getmsg", //
-			"getmsg", //
-			"index", //
-			"insert", //
-			"justify", //
-			"lastpos", //
-			"left", //
-			"length", //
-			"linesize", //
-			"listdsi", //
-			"listdsi", //
-			"max", //
-			"min", //
-			"msg", //
-			"msg", //
-			"mvsvar", //
-			"mvsvar", //
-			"outtrap", //
-			"outtrap", //
-			"overlay", //
-			"pos", //
-			"prompt", //
-			"prompt", //
-			"queued", //
-			"random", //
-			"reverse", //
-			"right", //
-			"setlang", //
-			"setlang", //
-			"sign", //
-			"sourceline", //
-			"space", //
-			"storage", //
-			"storage", //
-			"strip", //
-			"substr", //
-			"subword", //
-			"symbol", //
-			"syscpus", //
-			"syscpus", //
-			"sysdsn", //
-			"sysdsn", //
-			"sysvar", //
-			"sysvar", //
-			"time", //
-			"trace", //
-			"translate", //
-			"trapmsg", //
-			"trunc", //
-			"userid", //
-			"value", //
-			"verify", //
-			"word", //
-			"wordindex", //
-			"wordlength", //
-			"wordpos", //
-			"words", //
-			"x2b", //
-			"x2c", //
-			"x2d", //
-			"xrange", //
-	};
-	private static String[] KEYWORDS = { //
-			"address", //
-			"arg", //
-			"by", //
-			"call", //
-			"do", //
-			"drop", //
-			"else", //
-			"end", //
-			"exit", //
-			"expose", //
-			"for", //
-			"forever", //
-			"if", //
-			"interpret", //
-			"iterate", //
-			"leave", //
-			"nop", //
-			"numeric", //
-			"options", //
-			"parse", //
-			"procedure", //
-			"pull", //
-			"push", //
-			"queue", //
-			"return", //
-			"say", //
-			"select", //
-			"signal", //
-			"then", //
-			"to", //
-			"trace", //
-			"upper", //
-			"when", //
-			"while", //
-	};
+	/** the names of the data of a completion item */
+	private static final String DATA_URI = "uri";
+	private static final String DATA_VERSION = "version";
+	/** the keywords and functions sorted by their label for the prefix search, they are shared by all requests */
+	private static final List<LKeyword> SORTED_FUNCTIONS = sortByLabel(LKeyword::isFunction);
+	private static final List<LKeyword> SORTED_KEYWORDS = sortByLabel(LKeyword::isKeyword);
+
+	private static List<LKeyword> sortByLabel(final Predicate<LKeyword> pFilter)
+	{
+		final List<LKeyword> keywords = new ArrayList<LKeyword>();
+		for (final LKeyword keyword : LKeyword.values()) {
+			if (pFilter.test(keyword)) {
+				keywords.add(keyword);
+			}
+		}
+		keywords.sort(Comparator.comparing(LKeyword::getLabel));
+		return Collections.unmodifiableList(keywords);
+	}
 }
@@ -0,0 +1,29 @@
+/**
+ *  Copyright (c) 2020 Generali Deutschland AG - Team Informatik
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v2.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *  Markus Holzem <markus.holzem@generali.com>
+ */
+package de.generali.dev.ls.services;
+
+import org.eclipse.lsp4j.CompletionItem;
+
+import lombok.Value;
+
+/**
+ * LCompletionCandidate is a completion item with the weight it is ranked by.
+ */
+@Value
+class LCompletionCandidate
+{
+	private final CompletionItem item;
+	/** the weight of the candidate from its distance to the cursor and its usage, a greater weight ranks higher */
+	private final int weight;
+}
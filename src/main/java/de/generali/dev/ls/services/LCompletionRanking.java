@@ -0,0 +1,179 @@
+/**
+ *  Copyright (c) 2020 Generali Deutschland AG - Team Informatik
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v2.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *  Markus Holzem <markus.holzem@generali.com>
+ */
+package de.generali.dev.ls.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.UnaryOperator;
+
+import org.eclipse.lsp4j.CompletionItem;
+
+import de.generali.dev.ls.language.LKeyword;
+import de.generali.dev.ls.language.LModel;
+import de.generali.dev.ls.language.LToken;
+import de.generali.dev.ls.language.LTokenTable;
+import de.generali.dev.ls.language.LTokenType;
+
+/**
+ * LCompletionRanking weights the candidates of a completion and keeps the best of them.
+ * <p>
+ * A variable or label weighs more the nearer its definition is to the cursor. All candidates weigh more the more
+ * often they are used in the document. The usage is counted in one pass over the tokens, only identifiers matching
+ * the prefix are counted.
+ * <p>
+ * The score of a candidate is its weight, a candidate matching the prefix with the same case always scores higher.
+ * Only the candidates with the best scores are kept in a bounded heap, their rank is sent as the sort text.
+ */
+class LCompletionRanking
+{
+	private static final int MAX_PROXIMITY = 100;
+	private static final int MAX_USAGES = 50;
+	private static final int USAGE_WEIGHT = 10;
+	private static final int EXACT_PREFIX_SCORE = 1_000_000;
+
+	private final int _cursorLine;
+	private final Map<String, Integer> _identifierUsages = new HashMap<String, Integer>();
+	private final int[] _keywordUsages = new int[LKeyword.values().length];
+
+	/**
+	 * Constructor
+	 *
+	 * @param pLModel     the model of the completion
+	 * @param pCursorLine the line of the cursor
+	 * @param pPrefix     the text already typed
+	 */
+	LCompletionRanking(final LModel pLModel, final int pCursorLine, final String pPrefix) {
+		_cursorLine = pCursorLine;
+		final List<LToken> tokens = pLModel.getTokens();
+		if (tokens instanceof LTokenTable) {
+			countUsages((LTokenTable) tokens, pPrefix);
+		} else {
+			for (final LToken token : tokens) {
+				countUsage(token.getType(), token.getKeyword(), token.getText(), pPrefix);
+			}
+		}
+	}
+
+	private void countUsages(final LTokenTable pTokens, final String pPrefix)
+	{
+		final String source = pTokens.getSource();
+		for (int i = 0; i < pTokens.size(); ++i) {
+			final LTokenType type = pTokens.getType(i);
+			if (type == LTokenType.IDENTIFIER) {
+				// the text of the token is only created if it matches the prefix
+				if (pTokens.getLength(i) >= pPrefix.length()
+						&& source.regionMatches(true, (int) pTokens.getCharBegin(i), pPrefix, 0, pPrefix.length())) {
+					countIdentifier(pTokens.getText(i));
+				}
+			} else if (pTokens.getKeyword(i) != null) {
+				++_keywordUsages[pTokens.getKeyword(i).ordinal()];
+			}
+		}
+	}
+
+	private void countUsage(final LTokenType pType, final LKeyword pKeyword, final String pText, final String pPrefix)
+	{
+		if (pType == LTokenType.IDENTIFIER) {
+			if (pText.regionMatches(true, 0, pPrefix, 0, pPrefix.length())) {
+				countIdentifier(pText);
+			}
+		} else if (pKeyword != null) {
+			++_keywordUsages[pKeyword.ordinal()];
+		}
+	}
+
+	private void countIdentifier(final String pText)
+	{
+		_identifierUsages.merge(pText.toLowerCase(Locale.ROOT), 1, Integer::sum);
+	}
+
+	/**
+	 * @param pDefinition the definition of a variable or label
+	 * @return the weight of the variable or label from the distance of its definition to the cursor and its usage
+	 */
+	int getWeight(final LToken pDefinition)
+	{
+		final int proximity = Math.max(0, MAX_PROXIMITY - Math.abs(pDefinition.getLine() - _cursorLine));
+		final Integer usages = _identifierUsages.get(pDefinition.getText().toLowerCase(Locale.ROOT));
+		return proximity + getUsageWeight(usages != null ? usages : 0);
+	}
+
+	/**
+	 * @param pKeyword a keyword or function
+	 * @return the weight of the keyword or function from its usage
+	 */
+	int getWeight(final LKeyword pKeyword)
+	{
+		return getUsageWeight(_keywordUsages[pKeyword.ordinal()]);
+	}
+
+	private static int getUsageWeight(final int pUsages)
+	{
+		return USAGE_WEIGHT * Math.min(pUsages, MAX_USAGES);
+	}
+
+	/**
+	 * Keep the candidates with the best scores. The kept items stay in the order of the candidates, their rank is set
+	 * as sort text, so the client shows them by rank.
+	 *
+	 * @param pCandidates the candidates
+	 * @param pPrefix     the text already typed
+	 * @param pLimit      the maximal number of items
+	 * @param pCopy       creates the item sent for a candidate, the items of the candidates are not changed otherwise
+	 * @return the items of the best candidates
+	 */
+	static List<CompletionItem> top(final List<LCompletionCandidate> pCandidates, final String pPrefix,
+			final int pLimit, final UnaryOperator<CompletionItem> pCopy)
+	{
+		final int size = pCandidates.size();
+		final long[] scores = new long[size];
+		for (int i = 0; i < size; ++i) {
+			final LCompletionCandidate candidate = pCandidates.get(i);
+			final boolean isExact = candidate.getItem().getLabel().startsWith(pPrefix);
+			scores[i] = candidate.getWeight() + (isExact ? EXACT_PREFIX_SCORE : 0);
+		}
+		// a higher score ranks first, an equal score keeps the order of the candidates
+		final Comparator<Integer> byRank = (i1, i2) -> (scores[i1] != scores[i2] ? Long.compare(scores[i2], scores[i1])
+				: Integer.compare(i1, i2));
+		// the heap has the worst of the kept candidates on top
+		final PriorityQueue<Integer> best = new PriorityQueue<Integer>(Math.min(size, pLimit) + 1, byRank.reversed());
+		for (int i = 0; i < size; ++i) {
+			best.add(i);
+			if (best.size() > pLimit) {
+				best.poll();
+			}
+		}
+		final Integer[] ranked = best.toArray(new Integer[best.size()]);
+		Arrays.sort(ranked, byRank);
+		final String[] sortTexts = new String[size];
+		for (int rank = 0; rank < ranked.length; ++rank) {
+			sortTexts[ranked[rank]] = String.format("%05d", rank);
+		}
+		final List<CompletionItem> items = new ArrayList<CompletionItem>(ranked.length);
+		for (int i = 0; i < size; ++i) {
+			if (sortTexts[i] != null) {
+				final CompletionItem item = pCopy.apply(pCandidates.get(i).getItem());
+				item.setSortText(sortTexts[i]);
+				items.add(item);
+			}
+		}
+		return items;
+	}
+}
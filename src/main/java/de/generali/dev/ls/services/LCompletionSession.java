@@ -0,0 +1,129 @@
+/**
+ *  Copyright (c) 2020 Generali Deutschland AG - Team Informatik
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v2.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *  Markus Holzem <markus.holzem@generali.com>
+ */
+package de.generali.dev.ls.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.lsp4j.CompletionItem;
+import org.eclipse.lsp4j.CompletionItemKind;
+
+import de.generali.dev.ls.language.LModel;
+import de.generali.dev.ls.language.LToken;
+
+/**
+ * LCompletionSession keeps the candidates of the last completion in a document. While the user types at the same
+ * token, the prefix only grows and the candidates of the longer prefix are a part of the previous candidates, so they
+ * are filtered instead of computed again.
+ * <p>
+ * The candidates depend on the variables and labels of the model starting with the prefix. A session is only continued
+ * with a model that has the same names with the prefix as the model the candidates were computed from, so a renamed
+ * variable is not proposed by its old name. The token at the cursor is left out, it is the text being typed.
+ */
+class LCompletionSession
+{
+	private final int _line;
+	private final int _column;
+	private final List<LToken> _variables;
+	private final List<LToken> _labels;
+	private String _prefix;
+	private final List<LCompletionCandidate> _candidates;
+
+	/**
+	 * Constructor
+	 *
+	 * @param pLModel     the model the candidates were computed from
+	 * @param pToken      the token at the cursor
+	 * @param pCandidates the candidates for the text of the token
+	 */
+	LCompletionSession(final LModel pLModel, final LToken pToken, final List<LCompletionCandidate> pCandidates) {
+		_line = pToken.getLine();
+		_column = pToken.getColumn();
+		_prefix = pToken.getText();
+		_variables = pLModel.findVariables(_prefix);
+		_labels = pLModel.findLabels(_prefix);
+		_candidates = new ArrayList<LCompletionCandidate>(pCandidates);
+	}
+
+	/**
+	 * @param pLModel the model of the completion
+	 * @param pToken  the token at the cursor
+	 * @return <code>true</code> if the candidates for the token can be filtered from this session
+	 */
+	synchronized boolean canFilter(final LModel pLModel, final LToken pToken)
+	{
+		final String prefix = pToken.getText();
+		return pToken.getLine() == _line && pToken.getColumn() == _column
+				&& prefix.regionMatches(true, 0, _prefix, 0, _prefix.length())
+				&& equalNames(_variables, pLModel.findVariables(_prefix))
+				&& equalNames(_labels, pLModel.findLabels(_prefix));
+	}
+
+	/**
+	 * @return <code>true</code> if both sorted lists have the same names apart from the token at the cursor
+	 */
+	private boolean equalNames(final List<LToken> pSessionNames, final List<LToken> pNames)
+	{
+		int i = 0;
+		int j = 0;
+		while (true) {
+			i = skipCursorToken(pSessionNames, i);
+			j = skipCursorToken(pNames, j);
+			if (i == pSessionNames.size() || j == pNames.size()) {
+				return i == pSessionNames.size() && j == pNames.size();
+			}
+			if (!pSessionNames.get(i).getText().equals(pNames.get(j).getText())) {
+				return false;
+			}
+			++i;
+			++j;
+		}
+	}
+
+	private int skipCursorToken(final List<LToken> pNames, final int pIndex)
+	{
+		int index = pIndex;
+		while (index < pNames.size() && pNames.get(index).getLine() == _line
+				&& pNames.get(index).getColumn() == _column) {
+			++index;
+		}
+		return index;
+	}
+
+	/**
+	 * Remove the candidates not matching the text of the token.
+	 *
+	 * @param pToken the token at the cursor
+	 * @return the remaining candidates
+	 */
+	synchronized List<LCompletionCandidate> filter(final LToken pToken)
+	{
+		final String prefix = pToken.getText();
+		if (prefix.length() > _prefix.length()) {
+			_candidates.removeIf(candidate -> !matches(candidate.getItem(), prefix));
+			_prefix = prefix;
+		}
+		return new ArrayList<LCompletionCandidate>(_candidates);
+	}
+
+	private static boolean matches(final CompletionItem pCandidate, final String pPrefix)
+	{
+		final String label = pCandidate.getLabel();
+		if (!label.regionMatches(true, 0, pPrefix, 0, pPrefix.length())) {
+			return false;
+		}
+		// a variable or stem part is only proposed if it is longer than the text already typed
+		return (pCandidate.getKind() != CompletionItemKind.Variable || label.length() > pPrefix.length());
+	}
+}
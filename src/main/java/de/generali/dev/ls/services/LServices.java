@@ -15,6 +15,7 @@ package de.generali.dev.ls.services;
 
 import java.util.List;
 
+import org.eclipse.lsp4j.CompletionItem;
 import org.eclipse.lsp4j.CompletionList;
 import org.eclipse.lsp4j.Position;
 import org.eclipse.lsp4j.ServerCapabilities;
@@ -24,6 +25,7 @@ import org.eclipse.lsp4j.TextDocumentSyncKind;
 import org.eclipse.lsp4j.jsonrpc.CancelChecker;
 import org.eclipse.lsp4j.services.LanguageClient;
 
+import de.generali.dev.ls.LSettings;
 import de.generali.dev.ls.language.LModel;
 
 /**
@@ -36,8 +38,12 @@ public class LServices
 	private final PublishDiagnosticsService _publishDiagnosticsService;
 
 	public LServices(final ServerCapabilities pServerCapabilities) {
-		pServerCapabilities.setTextDocumentSync(TextDocumentSyncKind.Full);
-		_completionService = new CompletionService(this, pServerCapabilities);
+		this(pServerCapabilities, LSettings.builder().build());
+	}
+
+	public LServices(final ServerCapabilities pServerCapabilities, final LSettings pSettings) {
+		pServerCapabilities.setTextDocumentSync(TextDocumentSyncKind.Incremental);
+		_completionService = new CompletionService(this, pServerCapabilities, pSettings.getCompletionLimit());
 		_documentSymbolService = new DocumentSymbolService(this, pServerCapabilities);
 		_publishDiagnosticsService = new PublishDiagnosticsService(this, pServerCapabilities);
 	}
@@ -47,6 +53,12 @@ public class LServices
 		return _completionService.doComplete(pCancelChecker, pLModel, pPosition);
 	}
 
+	public CompletionItem resolveCompletionItem(final CancelChecker pCancelChecker, final LModel pLModel,
+			final CompletionItem pCompletionItem)
+	{
+		return _completionService.resolveCompletionItem(pCancelChecker, pLModel, pCompletionItem);
+	}
+
 	public List<SymbolInformation> doDocumentSymbol(final CancelChecker pCancelChecker, final LModel pLModel)
 	{
 		return _documentSymbolService.doDocumentSymbol(pCancelChecker, pLModel);
@@ -58,6 +70,23 @@ public class LServices
 		_publishDiagnosticsService.publishDiagnostics(pLanguageClient, pCancelChecker, pLModel);
 	}
 
+	/**
+	 * Tell the services the latest version of a document which was opened or changed.
+	 *
+	 * @param pUri        the uri of the document
+	 * @param pGeneration the generation of the open document
+	 * @param pVersion    the version of the document
+	 */
+	public void updateVersion(final String pUri, final int pGeneration, final int pVersion)
+	{
+		_publishDiagnosticsService.updateVersion(pUri, pGeneration, pVersion);
+	}
+
+	public void cleanCompletion(final TextDocumentIdentifier pTextDocumentIdentifier)
+	{
+		_completionService.cleanSession(pTextDocumentIdentifier.getUri());
+	}
+
 	public void cleanDiagnostics(final LanguageClient pLanguageClient,
 			final TextDocumentIdentifier pTextDocumentIdentifier)
 	{
@@ -68,7 +68,7 @@ public class LTextDocumentService implements TextDocumentService
 	 */
 	public LTextDocumentService(final LServer pLServer) {
 		_lServer = pLServer;
-		_lDocuments = new LDocuments();
+		_lDocuments = new LDocuments(pLServer.getSettings(), pLServer.getExecutors(), this::validateLexical);
 	}
 
 	@Override
@@ -78,10 +78,16 @@ public class LTextDocumentService implements TextDocumentService
 		final TextDocumentIdentifier textDocumentIdentifier = completionParams.getTextDocument();
 		final Position position = completionParams.getPosition();
 		log("completion", textDocumentIdentifier, position);
-		return computeResultAsync(textDocumentIdentifier, //
+		final LDocumentItem lDocumentItem = getDocument(textDocumentIdentifier);
+		final int version = lDocumentItem.getVersion();
+		return lDocumentItem.computeLatestResultAsync( //
 				// BiFunction taking a CancelChecker and a LModel to create a CompletionList
 				(cancelChecker, model) -> {
 					final CompletionList list = getServices().doComplete(cancelChecker, model, position);
+					if (model.getVersion() != version) {
+						// computed on an older model, the client has to ask again
+						list.setIsIncomplete(true);
+					}
 					return Either.forRight(list);
 				});
 	}
@@ -89,7 +95,18 @@ public class LTextDocumentService implements TextDocumentService
 	@Override
 	public CompletableFuture<CompletionItem> resolveCompletionItem(final CompletionItem completionItem)
 	{
-		return null;
+		log.debug("resolveCompletionItem for {}", completionItem.getLabel());
+		// the item names the document and the version of the model it was computed on
+		final String uri = CompletionService.getDataUri(completionItem);
+		final int version = CompletionService.getDataVersion(completionItem);
+		final LDocumentItem lDocumentItem = (uri != null ? _lDocuments.getDocument(uri) : null);
+		if (lDocumentItem == null) {
+			return CompletableFuture.completedFuture(getServices().resolveCompletionItem(null, null, completionItem));
+		}
+		// the item is resolved on the parsed model, a model older than the completion does not know the item
+		return lDocumentItem.computeParsedResultAsync( //
+				(cancelChecker, model) -> getServices().resolveCompletionItem(cancelChecker,
+						(model != null && model.getVersion() >= version ? model : null), completionItem));
 	}
 
 	@Override
@@ -130,10 +147,16 @@ public class LTextDocumentService implements TextDocumentService
 	{
 		final TextDocumentIdentifier textDocumentIdentifier = documentSymbolParams.getTextDocument();
 		log("documentSymbol", textDocumentIdentifier);
-		return computeResultAsync(textDocumentIdentifier, //
+		final LDocumentItem lDocumentItem = getDocument(textDocumentIdentifier);
+		final int version = lDocumentItem.getVersion();
+		return lDocumentItem.computeLatestResultAsync( //
 				// BiFunction taking a CancelChecker and a LModel to create a list with SymbolInformation
 				(cancelChecker, model) -> {
 					final List<SymbolInformation> list = getServices().doDocumentSymbol(cancelChecker, model);
+					if (model.getVersion() != version) {
+						log.debug("documentSymbol for {} from version {} instead of {}", model.getUri(),
+								model.getVersion(), version);
+					}
 					return list;
 				});
 	}
@@ -189,6 +212,8 @@ public class LTextDocumentService implements TextDocumentService
 		final TextDocumentItem textDocumentItem = didOpenTextDocumentParams.getTextDocument();
 		log("open", textDocumentItem);
 		final LDocumentItem lDocumentItem = _lDocuments.onDidOpenTextDocument(didOpenTextDocumentParams);
+		getServices().updateVersion(lDocumentItem.getUri(), lDocumentItem.getGeneration(),
+				lDocumentItem.getVersion());
 		lDocumentItem.runActionAsync(this::validate);
 	}
 
@@ -198,6 +223,8 @@ public class LTextDocumentService implements TextDocumentService
 		final TextDocumentIdentifier textDocumentIdentifier = didChangeTextDocumentParams.getTextDocument();
 		log("change", textDocumentIdentifier);
 		final LDocumentItem lDocumentItem = _lDocuments.onDidChangeTextDocument(didChangeTextDocumentParams);
+		getServices().updateVersion(lDocumentItem.getUri(), lDocumentItem.getGeneration(),
+				lDocumentItem.getVersion());
 		lDocumentItem.runActionAsync(this::validate);
 	}
 
@@ -207,6 +234,7 @@ public class LTextDocumentService implements TextDocumentService
 		final TextDocumentIdentifier textDocumentIdentifier = didCloseTextDocumentParams.getTextDocument();
 		log("close", textDocumentIdentifier);
 		_lDocuments.onDidCloseTextDocument(didCloseTextDocumentParams);
+		getServices().cleanCompletion(textDocumentIdentifier);
 		getServices().cleanDiagnostics(getLanguageClient(), textDocumentIdentifier);
 	}
 
@@ -217,6 +245,15 @@ public class LTextDocumentService implements TextDocumentService
 		log("save", textDocumentIdentifier);
 	}
 
+	/**
+	 * Publish the errors of the lexer before the tokens are parsed, the structural errors follow with the model.
+	 */
+	private void validateLexical(final LModel pLexicalModel) throws CancellationException
+	{
+		log("validateLexical", pLexicalModel);
+		getServices().publishDiagnostics(getLanguageClient(), pLexicalModel.getCancelChecker(), pLexicalModel);
+	}
+
 	private void validate(final LModel pLModel) throws CancellationException
 	{
 		log("validate", pLModel);
@@ -239,10 +276,15 @@ public class LTextDocumentService implements TextDocumentService
 	private <Result> CompletableFuture<Result> computeResultAsync(final TextDocumentIdentifier pTextDocumentIdentifier,
 			final BiFunction<CancelChecker, LModel, Result> pComputeResultBiFunction)
 	{
-		final LDocumentItem lDocumentItem = _lDocuments.getDocument(pTextDocumentIdentifier.getUri());
+		final LDocumentItem lDocumentItem = getDocument(pTextDocumentIdentifier);
 		return lDocumentItem.computeResultAsync(pComputeResultBiFunction);
 	}
 
+	private LDocumentItem getDocument(final TextDocumentIdentifier pTextDocumentIdentifier)
+	{
+		return _lDocuments.getDocument(pTextDocumentIdentifier.getUri());
+	}
+
 	private LServices getServices()
 	{
 		return _lServer.getLServices();
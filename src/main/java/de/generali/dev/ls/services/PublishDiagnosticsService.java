@@ -14,8 +14,11 @@
 package de.generali.dev.ls.services;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.lsp4j.Diagnostic;
 import org.eclipse.lsp4j.DiagnosticSeverity;
@@ -32,11 +35,32 @@ import de.generali.dev.ls.language.LErrors;
 import de.generali.dev.ls.language.LModel;
 import de.generali.dev.ls.language.LToken;
 
+import lombok.extern.slf4j.Slf4j;
+
 /**
- * DocumentSymbolService
+ * PublishDiagnosticsService
+ * <p>
+ * The errors of the last published diagnostics of a document are kept as a fingerprint. Most parses while typing
+ * within a string or comment lead to the same errors, then nothing is published. The protocol only knows complete
+ * sets of diagnostics, so errors which only moved are published again.
+ * <p>
+ * The protocol version of the client has no version in the published diagnostics, so the latest version of each open
+ * document is kept with the fingerprint instead. It is raised when the document is opened or changed and by every
+ * published model. Diagnostics of an older model are dropped, a slow parse can not overwrite the diagnostics of a newer
+ * text. A closed document has no entry, so its diagnostics are dropped until it is opened again. The versions of a
+ * document opened again start anew, so the entry belongs to the generation of the open document and the diagnostics
+ * of a model of an earlier generation are dropped as well. The checks, the publish and the clean of a closed document
+ * are done under the lock of the entry of the document, so the client receives the diagnostics of a document in the
+ * order of their versions and nothing after the clean. Other documents are not blocked while they are sent.
  */
+@Slf4j
 public class PublishDiagnosticsService extends LService
 {
+	/** the number of values of the fingerprint of an error */
+	private static final int FINGERPRINT_SIZE = 2;
+
+	private final Map<String, LPublished> _published = new ConcurrentHashMap<String, LPublished>();
+
 	/**
 	 * Constructor
 	 */
@@ -48,12 +72,62 @@ public class PublishDiagnosticsService extends LService
 			final LModel pLModel)
 	{
 		final String uri = pLModel.getUri();
-		final List<Diagnostic> diagnosticList = new ArrayList<Diagnostic>();
+		final int version = pLModel.getVersion();
 		final LErrors errors = pLModel.getErrors();
-		if (errors.hasErrors()) {
-			final int numberOfErrors = errors.getNumberOfErrors();
+		final long[] fingerprint = getFingerprint(errors);
+		final String[] texts = getTexts(errors);
+		final LPublished published = _published.get(uri);
+		if (published == null) {
+			log.debug("diagnostics of {} version {} dropped, the document is closed", uri, version);
+			return;
+		}
+		synchronized (published) {
+			if (published._closed || published._generation != pLModel.getGeneration()) {
+				log.debug("diagnostics of {} version {} dropped, the document was closed", uri, version);
+				return;
+			}
+			if (published._version > version) {
+				log.debug("diagnostics of {} version {} outdated by version {}", uri, version, published._version);
+				return;
+			}
+			final boolean unchanged = Arrays.equals(published._fingerprint, fingerprint)
+					&& Arrays.equals(published._texts, texts);
+			published._version = version;
+			published._fingerprint = fingerprint;
+			published._texts = texts;
+			if (unchanged) {
+				log.debug("diagnostics of {} unchanged", uri);
+				return;
+			}
+			pLanguageClient.publishDiagnostics(new PublishDiagnosticsParams(uri, getDiagnostics(errors)));
+		}
+	}
+
+	/**
+	 * Raise the latest version of a document when it is opened or changed.
+	 *
+	 * @param pUri        the uri of the document
+	 * @param pGeneration the generation of the open document
+	 * @param pVersion    the version of the document
+	 */
+	public void updateVersion(final String pUri, final int pGeneration, final int pVersion)
+	{
+		final LPublished published = _published.compute(pUri, (uri, current) -> (current == null
+				|| current._generation != pGeneration ? new LPublished(pGeneration, pVersion) : current));
+		synchronized (published) {
+			if (published._version < pVersion) {
+				published._version = pVersion;
+			}
+		}
+	}
+
+	private static List<Diagnostic> getDiagnostics(final LErrors pErrors)
+	{
+		final List<Diagnostic> diagnosticList = new ArrayList<Diagnostic>();
+		if (pErrors.hasErrors()) {
+			final int numberOfErrors = pErrors.getNumberOfErrors();
 			for (int i = 0; i < numberOfErrors; ++i) {
-				final LError error = errors.getError(i);
+				final LError error = pErrors.getError(i);
 				final LToken errorToken = error.getToken();
 				final int length = errorToken.getText().length();
 				final Position startPos = new Position(errorToken.getLine(), errorToken.getColumn());
@@ -65,8 +139,37 @@ public class PublishDiagnosticsService extends LService
 				diagnosticList.add(diagnostic);
 			}
 		}
-		final PublishDiagnosticsParams diagnostics = new PublishDiagnosticsParams(uri, diagnosticList);
-		pLanguageClient.publishDiagnostics(diagnostics);
+		return diagnosticList;
+	}
+
+	/**
+	 * The fingerprint holds the position, type and length of every error, the diagnostic is built from them and the
+	 * text of the error.
+	 */
+	private static long[] getFingerprint(final LErrors pErrors)
+	{
+		final int numberOfErrors = pErrors.getNumberOfErrors();
+		final long[] fingerprint = new long[numberOfErrors * FINGERPRINT_SIZE];
+		for (int i = 0; i < numberOfErrors; ++i) {
+			final LError error = pErrors.getError(i);
+			final LToken errorToken = error.getToken();
+			final int index = i * FINGERPRINT_SIZE;
+			fingerprint[index] = ((long) errorToken.getLine() << 32) | errorToken.getColumn();
+			fingerprint[index + 1] = ((long) error.getErrorType().ordinal() << 32) | errorToken.getLength();
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * The texts of the errors are the source of the diagnostics, they are compared themselves as a hash may collide.
+	 */
+	private static String[] getTexts(final LErrors pErrors)
+	{
+		final String[] texts = new String[pErrors.getNumberOfErrors()];
+		for (int i = 0; i < texts.length; ++i) {
+			texts[i] = pErrors.getError(i).getToken().getText();
+		}
+		return texts;
 	}
 
 	public void publishCleanDiagnostics(final LanguageClient pLanguageClient,
@@ -74,6 +177,34 @@ public class PublishDiagnosticsService extends LService
 	{
 		final String uri = pTextDocumentIdentifier.getUri();
 		final PublishDiagnosticsParams diagnostics = new PublishDiagnosticsParams(uri, Collections.emptyList());
-		pLanguageClient.publishDiagnostics(diagnostics);
+		final LPublished published = _published.remove(uri);
+		if (published == null) {
+			pLanguageClient.publishDiagnostics(diagnostics);
+			return;
+		}
+		// a publish which already has the entry drops its diagnostics behind the clean
+		synchronized (published) {
+			published._closed = true;
+			pLanguageClient.publishDiagnostics(diagnostics);
+		}
+	}
+
+	/**
+	 * LPublished is the generation and latest version of an open document and the fingerprint and error texts of its
+	 * last published diagnostics. It is guarded by itself.
+	 */
+	private static final class LPublished
+	{
+		private final int _generation;
+		private int _version;
+		/** the fingerprint or <code>null</code> if nothing was published since the document was opened */
+		private long[] _fingerprint;
+		private String[] _texts;
+		private boolean _closed;
+
+		LPublished(final int pGeneration, final int pVersion) {
+			_generation = pGeneration;
+			_version = pVersion;
+		}
 	}
 }
@@ -0,0 +1,87 @@
+/**
+ *  Copyright (c) 2020 Generali Deutschland AG - Team Informatik
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v2.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *  Markus Holzem <markus.holzem@generali.com>
+ */
+package de.generali.dev.ls;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import de.generali.dev.ls.LPriorityExecutor.LPriority;
+import de.generali.dev.ls.LPriorityExecutor.LPriorityTask;
+
+/**
+ * LPriorityExecutorTest
+ */
+class LPriorityExecutorTest
+{
+	private final LPriorityExecutor _executor = new LPriorityExecutor(1, Executors.defaultThreadFactory());
+	private final List<String> _order = new CopyOnWriteArrayList<String>();
+	private final CountDownLatch _blocked = new CountDownLatch(1);
+	private final CountDownLatch _done = new CountDownLatch(1);
+
+	@Test
+	void testOrder() throws InterruptedException
+	{
+		block();
+		_executor.execute(() -> _order.add("old"), LPriority.BACKGROUND, 1L);
+		_executor.execute(() -> _order.add("recent"), LPriority.BACKGROUND, 2L);
+		_executor.execute(() -> _order.add("recent2"), LPriority.BACKGROUND, 2L);
+		_executor.execute(() -> _order.add("interactive"), LPriority.INTERACTIVE, 0L);
+		release();
+		assertThat(_order, contains("interactive", "recent", "recent2", "old"));
+	}
+
+	@Test
+	void testPromote() throws InterruptedException
+	{
+		block();
+		_executor.execute(() -> _order.add("recent"), LPriority.BACKGROUND, 2L);
+		final LPriorityTask task = _executor.execute(() -> _order.add("old"), LPriority.BACKGROUND, 1L);
+		assertThat(_executor.promote(task), is(true));
+		release();
+		assertThat(_order, contains("old", "recent"));
+		// the task is not waiting anymore
+		assertThat(_executor.promote(task), is(false));
+	}
+
+	/**
+	 * Keep the only thread busy, so the following tasks have to wait in the queue.
+	 */
+	private void block()
+	{
+		_executor.execute(() -> {
+			try {
+				_blocked.await();
+			} catch (final InterruptedException exc) {
+				Thread.currentThread().interrupt();
+			}
+		}, LPriority.INTERACTIVE, 0L);
+	}
+
+	private void release() throws InterruptedException
+	{
+		_executor.execute(_done::countDown, LPriority.BACKGROUND, Long.MIN_VALUE);
+		_blocked.countDown();
+		assertThat(_done.await(5L, TimeUnit.SECONDS), is(true));
+		_executor.shutdownNow();
+	}
+}
@@ -0,0 +1,219 @@
+/**
+ *  Copyright (c) 2020 Generali Deutschland AG - Team Informatik
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v2.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *  Markus Holzem <markus.holzem@generali.com>
+ */
+package de.generali.dev.ls.documents;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.lsp4j.DidChangeTextDocumentParams;
+import org.eclipse.lsp4j.DidCloseTextDocumentParams;
+import org.eclipse.lsp4j.DidOpenTextDocumentParams;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
+import org.eclipse.lsp4j.TextDocumentIdentifier;
+import org.eclipse.lsp4j.TextDocumentItem;
+import org.eclipse.lsp4j.VersionedTextDocumentIdentifier;
+import org.junit.jupiter.api.Test;
+
+import de.generali.dev.ls.LExecutors;
+import de.generali.dev.ls.LPriorityExecutor.LPriority;
+import de.generali.dev.ls.LSettings;
+import de.generali.dev.ls.language.LModel;
+
+/**
+ * LDocumentsTest
+ */
+class LDocumentsTest
+{
+	private static final int DOCUMENTS = 8;
+	private static final int CHANGES = 200;
+
+	@Test
+	void testConcurrentDocuments() throws Exception
+	{
+		final LSettings settings = LSettings.builder().build();
+		final LDocuments documents = new LDocuments(settings, new LExecutors(settings));
+		final ExecutorService executor = Executors.newFixedThreadPool(DOCUMENTS);
+		final List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int i = 0; i < DOCUMENTS; ++i) {
+			final String uri = "file:///test" + i + ".rex";
+			futures.add(executor.submit(() -> {
+				final DidOpenTextDocumentParams openParams = new DidOpenTextDocumentParams();
+				openParams.setTextDocument(new TextDocumentItem(uri, "rexx", 0, "say 1\n"));
+				documents.onDidOpenTextDocument(openParams);
+				for (int version = 1; version <= CHANGES; ++version) {
+					final Range range = new Range(new Position(1, 0), new Position(1, 0));
+					final VersionedTextDocumentIdentifier identifier = new VersionedTextDocumentIdentifier();
+					identifier.setUri(uri);
+					identifier.setVersion(version);
+					final DidChangeTextDocumentParams changeParams = new DidChangeTextDocumentParams();
+					changeParams.setTextDocument(identifier);
+					changeParams.setContentChanges(
+							Collections.singletonList(new TextDocumentContentChangeEvent(range, 0, "x\n")));
+					documents.onDidChangeTextDocument(changeParams);
+				}
+			}));
+		}
+		for (final Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+		for (int i = 0; i < DOCUMENTS; ++i) {
+			final String uri = "file:///test" + i + ".rex";
+			final LDocumentItem document = documents.getDocument(uri);
+			assertThat(document.getVersion(), is(equalTo(CHANGES)));
+			assertThat(document.getText().length(), is(equalTo(6 + 2 * CHANGES)));
+			final DidCloseTextDocumentParams closeParams = new DidCloseTextDocumentParams();
+			closeParams.setTextDocument(new TextDocumentIdentifier(uri));
+			documents.onDidCloseTextDocument(closeParams);
+			assertThat(documents.getDocument(uri), is(nullValue()));
+		}
+	}
+
+	@Test
+	void testModelPerVersion() throws Exception
+	{
+		final LSettings settings = LSettings.builder().build();
+		final LDocuments documents = new LDocuments(settings, new LExecutors(settings));
+		final String uri = "file:///version.rex";
+		final DidOpenTextDocumentParams openParams = new DidOpenTextDocumentParams();
+		openParams.setTextDocument(new TextDocumentItem(uri, "rexx", 1, "say 1\n"));
+		final LDocumentItem document = documents.onDidOpenTextDocument(openParams);
+		final CompletableFuture<LModel> model1 = document.computeResultAsync((cancelChecker, model) -> model);
+		final CompletableFuture<LModel> model2 = document.computeResultAsync((cancelChecker, model) -> model);
+		// both requests share the parse of version 1
+		assertThat(model1.get(), is(sameInstance(model2.get())));
+		assertThat(model1.get().getVersion(), is(equalTo(1)));
+		final VersionedTextDocumentIdentifier identifier = new VersionedTextDocumentIdentifier();
+		identifier.setUri(uri);
+		identifier.setVersion(2);
+		final DidChangeTextDocumentParams changeParams = new DidChangeTextDocumentParams();
+		changeParams.setTextDocument(identifier);
+		changeParams.setContentChanges(Collections.singletonList(new TextDocumentContentChangeEvent("say 2\n")));
+		documents.onDidChangeTextDocument(changeParams);
+		final LModel model3 = document.computeResultAsync((cancelChecker, model) -> model).get();
+		assertThat(model3.getVersion(), is(equalTo(2)));
+		assertThat(model3.getText(), is(equalTo("say 2\n")));
+	}
+
+	@Test
+	void testClose() throws Exception
+	{
+		final LSettings settings = LSettings.builder().parseThreads(1).build();
+		final LExecutors executors = new LExecutors(settings);
+		final LDocuments documents = new LDocuments(settings, executors);
+		final String uri = "file:///close.rex";
+		// keep the only parse thread busy
+		final CountDownLatch latch = new CountDownLatch(1);
+		executors.getParseExecutor().execute(() -> {
+			try {
+				latch.await();
+			} catch (final InterruptedException exc) {
+				Thread.currentThread().interrupt();
+			}
+		}, LPriority.INTERACTIVE, Long.MAX_VALUE);
+		final DidOpenTextDocumentParams openParams = new DidOpenTextDocumentParams();
+		openParams.setTextDocument(new TextDocumentItem(uri, "rexx", 1, "say 1\n"));
+		final LDocumentItem document = documents.onDidOpenTextDocument(openParams);
+		final CompletableFuture<LModel> model = document.computeResultAsync((cancelChecker, lModel) -> lModel);
+		final DidCloseTextDocumentParams closeParams = new DidCloseTextDocumentParams();
+		closeParams.setTextDocument(new TextDocumentIdentifier(uri));
+		documents.onDidCloseTextDocument(closeParams);
+		// the waiting parse is canceled by the close
+		assertThat(model.isCompletedExceptionally(), is(true));
+		latch.countDown();
+		// the document opened again is a new generation and passes it on to its models
+		final LDocumentItem reopened = documents.onDidOpenTextDocument(openParams);
+		assertThat(reopened.getGeneration(), is(not(equalTo(document.getGeneration()))));
+		assertThat(reopened.computeResultAsync((cancelChecker, lModel) -> lModel).get().getGeneration(),
+				is(equalTo(reopened.getGeneration())));
+		executors.shutdown();
+	}
+
+	@Test
+	void testEquals()
+	{
+		final LSettings settings = LSettings.builder().build();
+		final LDocuments documents = new LDocuments(settings, new LExecutors(settings));
+		final TextDocumentItem item = new TextDocumentItem("file:///equals.rex", "rexx", 1, "say 1\n");
+		final LDocumentItem document1 = documents.createDocument(item);
+		final LDocumentItem document2 = documents.createDocument(item);
+		assertThat(document1, is(equalTo(document2)));
+		assertThat(document1.hashCode(), is(equalTo(document2.hashCode())));
+		// the changed text is only in the text buffer
+		document2.update(Collections.singletonList(
+				new TextDocumentContentChangeEvent(new Range(new Position(0, 4), new Position(0, 5)), 1, "2")));
+		assertThat(document2.getText(), is(equalTo("say 2\n")));
+		assertThat(document1, is(not(equalTo(document2))));
+		assertThat(document2.toString(), containsString("length=6"));
+	}
+
+	@Test
+	void testStaleModel() throws Exception
+	{
+		final LSettings settings = LSettings.builder().parseThreads(1).staleModelBudget(10L).build();
+		final LExecutors executors = new LExecutors(settings);
+		final LDocuments documents = new LDocuments(settings, executors);
+		final String uri = "file:///stale.rex";
+		final DidOpenTextDocumentParams openParams = new DidOpenTextDocumentParams();
+		openParams.setTextDocument(new TextDocumentItem(uri, "rexx", 1, "say 1\n"));
+		final LDocumentItem document = documents.onDidOpenTextDocument(openParams);
+		assertThat(document.computeLatestResultAsync((cancelChecker, model) -> model).get().getVersion(),
+				is(equalTo(1)));
+		// keep the only parse thread busy
+		final CountDownLatch latch = new CountDownLatch(1);
+		executors.getParseExecutor().execute(() -> {
+			try {
+				latch.await();
+			} catch (final InterruptedException exc) {
+				Thread.currentThread().interrupt();
+			}
+		}, LPriority.INTERACTIVE, Long.MAX_VALUE);
+		final VersionedTextDocumentIdentifier identifier = new VersionedTextDocumentIdentifier();
+		identifier.setUri(uri);
+		identifier.setVersion(2);
+		final DidChangeTextDocumentParams changeParams = new DidChangeTextDocumentParams();
+		changeParams.setTextDocument(identifier);
+		changeParams.setContentChanges(Collections.singletonList(new TextDocumentContentChangeEvent("say 2\n")));
+		documents.onDidChangeTextDocument(changeParams);
+		// the parse of version 2 cannot start, so the answer comes from version 1
+		final LModel staleModel = document.computeLatestResultAsync((cancelChecker, model) -> model).get();
+		assertThat(staleModel.getVersion(), is(equalTo(1)));
+		assertThat(staleModel.getText(), is(equalTo("say 1\n")));
+		// a result on the parsed model does not wait for the parse
+		assertThat(document.computeParsedResultAsync((cancelChecker, model) -> model).get(),
+				is(sameInstance(staleModel)));
+		latch.countDown();
+		final LModel model = document.computeResultAsync((cancelChecker, lModel) -> lModel).get();
+		assertThat(model.getVersion(), is(equalTo(2)));
+		assertThat(document.computeLatestResultAsync((cancelChecker, lModel) -> lModel).get(),
+				is(sameInstance(model)));
+		executors.shutdown();
+	}
+}
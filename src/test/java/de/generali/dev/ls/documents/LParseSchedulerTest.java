@@ -0,0 +1,54 @@
+/**
+ *  Copyright (c) 2020 Generali Deutschland AG - Team Informatik
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v2.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *  Markus Holzem <markus.holzem@generali.com>
+ */
+package de.generali.dev.ls.documents;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import de.generali.dev.ls.LExecutors;
+import de.generali.dev.ls.LSettings;
+
+/**
+ * LParseSchedulerTest
+ */
+class LParseSchedulerTest
+{
+	private final LSettings _settings = LSettings.builder().parseDelayMin(20L).parseDelayMax(400L)
+			.parseDelayFactor(2.0d).build();
+	private final LParseScheduler _parseScheduler = new LParseScheduler(_settings, new LExecutors(_settings));
+
+	@Test
+	void testDelay()
+	{
+		// no parse time measured yet
+		assertThat(_parseScheduler.getDelay(0.0d), is(equalTo(20L)));
+		assertThat(_parseScheduler.getDelay(5.0d), is(equalTo(20L)));
+		assertThat(_parseScheduler.getDelay(50.0d), is(equalTo(100L)));
+		assertThat(_parseScheduler.getDelay(1000.0d), is(equalTo(400L)));
+	}
+
+	@Test
+	void testSchedule() throws InterruptedException
+	{
+		final CountDownLatch latch = new CountDownLatch(1);
+		_parseScheduler.schedule(latch::countDown, 10L);
+		assertThat(latch.await(5L, TimeUnit.SECONDS), is(true));
+	}
+}
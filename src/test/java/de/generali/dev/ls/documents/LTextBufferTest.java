@@ -0,0 +1,86 @@
+/**
+ *  Copyright (c) 2020 Generali Deutschland AG - Team Informatik
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v2.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *  Markus Holzem <markus.holzem@generali.com>
+ */
+package de.generali.dev.ls.documents;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * LTextBufferTest
+ */
+class LTextBufferTest
+{
+	@Test
+	void testOffset()
+	{
+		final LTextBuffer buffer = new LTextBuffer("/* REXX */\r\nsay 'a'\nexit 0");
+		assertThat(buffer.getOffset(0, 0), is(equalTo(0)));
+		assertThat(buffer.getOffset(0, 4), is(equalTo(4)));
+		// behind the end of a line is the end of the line (without \r\n)
+		assertThat(buffer.getOffset(0, 99), is(equalTo(10)));
+		assertThat(buffer.getOffset(1, 0), is(equalTo(12)));
+		assertThat(buffer.getOffset(1, 99), is(equalTo(19)));
+		assertThat(buffer.getOffset(2, 4), is(equalTo(24)));
+		// behind the last line is the end of the text
+		assertThat(buffer.getOffset(3, 0), is(equalTo(26)));
+	}
+
+	@Test
+	void testInsert()
+	{
+		final LTextBuffer buffer = new LTextBuffer("say var\nexit 0\n");
+		buffer.replace(0, 7, 0, 7, "1");
+		buffer.replace(1, 0, 1, 0, "var2 = 2\n");
+		assertThat(buffer.getLength(), is(equalTo(25)));
+		assertThat(buffer.toString(), is(equalTo("say var1\nvar2 = 2\nexit 0\n")));
+	}
+
+	@Test
+	void testDelete()
+	{
+		final LTextBuffer buffer = new LTextBuffer("do i = 1 to 5\n  say i\nend\n");
+		buffer.replace(0, 2, 1, 7, "");
+		assertThat(buffer.toString(), is(equalTo("do\nend\n")));
+		buffer.replace(0, 0, 2, 0, "");
+		assertThat(buffer.toString(), is(equalTo("")));
+	}
+
+	@Test
+	void testReplaceAcrossEdits()
+	{
+		final LTextBuffer buffer = new LTextBuffer("a = 1\nb = 2\n");
+		buffer.replace(0, 4, 0, 5, "10");
+		buffer.replace(1, 0, 1, 1, "c");
+		// the second line has to be found behind the first edit
+		buffer.replace(1, 4, 1, 5, "20");
+		buffer.replace(0, 0, 0, 0, "/* REXX */\n");
+		assertThat(buffer.getNumberOfPieces() > 1, is(true));
+		assertThat(buffer.toString(), is(equalTo("/* REXX */\na = 10\nc = 20\n")));
+		// the text is collapsed after it has been assembled
+		assertThat(buffer.getNumberOfPieces(), is(equalTo(1)));
+	}
+
+	@Test
+	void testSetText()
+	{
+		final LTextBuffer buffer = new LTextBuffer("say 1");
+		buffer.replace(0, 4, 0, 5, "2");
+		buffer.setText("say 3");
+		assertThat(buffer.toString(), is(equalTo("say 3")));
+		assertThat(buffer.getLength(), is(equalTo(5)));
+	}
+}
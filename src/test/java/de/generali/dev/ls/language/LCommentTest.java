@@ -133,4 +133,21 @@ class LCommentTest
 		assertThat(lexer.nextToken(), is(nullValue()));
 		assertThat(lexer.getErrors().hasErrors(), is(false));
 	}
+
+	@Test
+	void testCommentWithManySlashes() throws IOException
+	{
+		final LLexerBuilder builder = new LLexerBuilder().addln("/*");
+		for (int i = 0; i < 10000; ++i) {
+			builder.addln("  //////////////////////////////////////////////////////////////////////");
+		}
+		final LLexer lexer = builder.add("*/").build();
+		LToken token;
+		token = lexer.nextToken();
+		assertThat(token.getType(), is(equalTo(LTokenType.COMMENT)));
+		assertThat(token.getLine(), is(equalTo(0)));
+		assertThat(token.getCharEnd(), is(equalTo(4L + 10000L * 74L + 2L)));
+		assertThat(lexer.nextToken(), is(nullValue()));
+		assertThat(lexer.getErrors().hasErrors(), is(false));
+	}
 }
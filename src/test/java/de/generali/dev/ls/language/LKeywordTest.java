@@ -17,6 +17,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
 
 import java.io.IOException;
 
@@ -54,4 +55,41 @@ class LKeywordTest
 		assertThat(lexer.nextRealToken(), is(nullValue()));
 		assertThat(lexer.getErrors().hasErrors(), is(false));
 	}
+
+	@Test
+	void testEveryKeyword() throws IOException
+	{
+		for (final LKeyword keyword : LKeyword.values()) {
+			final LLexer lexer = new LLexerBuilder().addln(keyword.name().toLowerCase()).build();
+			final LToken token = lexer.nextRealToken();
+			assertThat(keyword.name(), token.getType(), is(equalTo(keyword.getTokenType())));
+			assertThat(keyword.name(), lexer.getTokenKeyword(), is(equalTo(keyword)));
+		}
+	}
+
+	@Test
+	void testLookup()
+	{
+		assertThat(LKeyword.lookup("Arg"), is(equalTo(LKeyword.ARG)));
+		assertThat(LKeyword.ARG.isKeyword(), is(true));
+		assertThat(LKeyword.ARG.isFunction(), is(true));
+		assertThat(LKeyword.lookup("subStr").getTokenType(), is(equalTo(LTokenType.FUNCTION)));
+		assertThat(LKeyword.lookup("substr.1"), is(nullValue()));
+		assertThat(LKeyword.lookup("sub"), is(nullValue()));
+		assertThat(LKeyword.lookup("interpretation"), is(nullValue()));
+		assertThat(LKeyword.lookup(""), is(nullValue()));
+	}
+
+	@Test
+	void testSignature()
+	{
+		for (final LKeyword keyword : LKeyword.values()) {
+			assertThat(keyword.getLabel(), is(equalTo(keyword.name().toLowerCase())));
+			if (keyword.isFunction()) {
+				assertThat(keyword.getSignature(), startsWith(keyword.name() + "("));
+			} else {
+				assertThat(keyword.getSignature(), is(nullValue()));
+			}
+		}
+	}
 }
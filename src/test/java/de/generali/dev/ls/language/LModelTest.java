@@ -14,13 +14,19 @@
 package de.generali.dev.ls.language;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.Matchers.startsWith;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
 
@@ -88,10 +94,67 @@ class LModelTest
 		assertThat(file.getText(), is(equalTo("/* REXX */\r\nexit 0")));
 	}
 
+	@Test
+	void testSource()
+	{
+		final String text = "/* REXX */\r\nexit 0";
+		final LModel file = LParser.INSTANCE.parse("test.rex", text);
+		assertThat(file.getText(), is(sameInstance(text)));
+		assertThat(file.getText(12L, 16L).toString(), is(equalTo("exit")));
+	}
+
+	@Test
+	void testFindVariables()
+	{
+		final LModel file = LParser.INSTANCE.parse("test.rex", "b = 1\nStem.1 = 2\nabc = 3\nstem.2 = 4\nA = 5\n");
+		assertThat(file.findVariables("stem").stream().map(LToken::getText).collect(Collectors.toList()),
+				contains("Stem.1", "stem.2"));
+		assertThat(file.findVariables("A").stream().map(LToken::getText).collect(Collectors.toList()),
+				contains("A", "abc"));
+		assertThat(file.findVariables("").size(), is(equalTo(5)));
+		assertThat(file.findVariables("x"), is(empty()));
+	}
+
+	@Test
+	void testStemTree()
+	{
+		final LModel file = LParser.INSTANCE.parse("test.rex",
+				"cust.addr.city = 1\ncust.name = 2\ncust.addr.zip = 3\ncust = 4\ncustomer = 5\n");
+		assertThat(file.getStemTree().size(), is(equalTo(7)));
+		final List<String> parts = new ArrayList<String>();
+		// the line of the last variable of a part is its weight
+		file.getStemTree().findParts("CUST.", LToken::getLine, (part, weight) -> parts.add(part + " " + weight));
+		assertThat(parts, contains("cust. 2", "cust.addr. 2", "cust.addr.city 0", "cust.addr.zip 2", "cust.name 1"));
+		parts.clear();
+		file.getStemTree().findParts("cust.addr.z", LToken::getLine, (part, weight) -> parts.add(part));
+		assertThat(parts, contains("cust.addr.zip"));
+	}
+
+	@Test
+	void testEqualModels()
+	{
+		final String uri = "rexx/simple.rex";
+		final String testResourceContent = TestResource.getContent(uri);
+		final LModel model1 = LParser.INSTANCE.parse(uri, testResourceContent);
+		final LModel model2 = LParser.INSTANCE.parse(uri, testResourceContent);
+		assertThat(model1.hashCode(), is(equalTo(model1.hashCode())));
+		assertThat(model1, is(equalTo(model2)));
+		assertThat(model1.hashCode(), is(equalTo(model2.hashCode())));
+		// the token table is equal to a list with the same tokens
+		final List<LToken> tokens = new ArrayList<LToken>(model1.getTokens());
+		assertThat(tokens, is(equalTo(model1.getTokens())));
+		assertThat(model1.getTokens(), is(equalTo(tokens)));
+		assertThat(tokens.hashCode(), is(equalTo(model1.getTokens().hashCode())));
+		assertThat(model1, is(not(equalTo(LParser.INSTANCE.parse(uri, testResourceContent + "say 1\n")))));
+	}
+
 	@Test
 	void testEquals()
 	{
-		EqualsVerifier.forClass(LModel.class).verify();
+		EqualsVerifier.forClass(LModel.class).withIgnoredFields("stemTree") //
+				.withPrefabValues(LToken.class, new LToken(LTokenType.IDENTIFIER, "a", 0, 0, 0L),
+						new LToken(LTokenType.IDENTIFIER, "b", 1, 0, 2L)) //
+				.verify();
 	}
 
 	@Test
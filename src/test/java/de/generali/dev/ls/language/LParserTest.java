@@ -15,6 +15,7 @@ package de.generali.dev.ls.language;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 
@@ -54,4 +55,126 @@ class LParserTest
 		assertThat(lModel.getLabels().size(), is(equalTo(1)));
 		assertThat(lModel.getLabels().get(0).getText(), is(equalTo("TESTPROC")));
 	}
-}
\ No newline at end of file
+
+	@Test
+	void testNamesIgnoreCase()
+	{
+		final String text = "Info = 1\nINFO = 2\ninfoSum = info\nproc:\nPROC: return\n"
+				+ "parse arg Info ARG1 arg1\nexit 0\n";
+		final LModel lModel = LParser.INSTANCE.parse("rexx/names.rex", text);
+		final List<String> variableTexts = new ArrayList<String>();
+		for (final LToken variable : lModel.getVariables()) {
+			variableTexts.add(variable.getText());
+		}
+		assertThat(variableTexts, containsInAnyOrder("Info", "infoSum", "ARG1"));
+		assertThat(variableTexts.size(), is(equalTo(3)));
+		assertThat(lModel.getLabels().size(), is(equalTo(1)));
+		assertThat(lModel.getLabels().get(0).getText(), is(equalTo("proc")));
+	}
+
+	@Test
+	void testIncrementalChangeLine()
+	{
+		final String text = TestResource.getContent("rexx/simple.rex");
+		final int start = text.indexOf("infoSum = 5");
+		assertIncremental(text, start, start + "infoSum".length(), "total");
+	}
+
+	@Test
+	void testIncrementalInsertLines()
+	{
+		final String text = TestResource.getContent("rexx/simple.rex");
+		final int start = text.indexOf("/* Compute */");
+		assertIncremental(text, start, start, "x = 1\n\ny = x\n");
+	}
+
+	@Test
+	void testIncrementalOpenComment()
+	{
+		final String text = TestResource.getContent("rexx/simple.rex");
+		final int start = text.indexOf("info = \"5");
+		final LModel lModel = assertIncremental(text, start, start, "/*");
+		assertThat(lModel.getErrors().hasErrors(), is(true));
+		assertThat(lModel.getErrors().getError(0).getErrorType(), is(equalTo(LErrorType.E_UNCLOSED_COMMENT)));
+	}
+
+	@Test
+	void testIncrementalDeleteLines()
+	{
+		final String text = TestResource.getContent("rexx/simple.rex");
+		final int start = text.indexOf("info = \"\"");
+		final int end = text.indexOf("/* Display */");
+		assertIncremental(text, start, end, "");
+	}
+
+	@Test
+	void testIncrementalFromCheckpoint()
+	{
+		final StringBuilder sb = new StringBuilder("/* REXX */\n");
+		for (int i = 0; i < 200; ++i) {
+			sb.append("LABEL").append(i).append(":\n");
+			sb.append("do i = 1 to ").append(i).append("\n");
+			sb.append("  var").append(i).append(" = i; end\n");
+		}
+		sb.append("parse arg a b\nexit 0\n");
+		final String text = sb.toString();
+		final int start = text.indexOf("do i = 1 to 190");
+		final LModel lModel = assertIncremental(text, start, start + 2, "say");
+		assertThat(lModel.getParserState().getCheckpoints().size() > 1, is(true));
+		assertThat(lModel.getErrors().getNumberOfErrors(), is(equalTo(1)));
+		assertThat(lModel.getErrors().getError(0).getErrorType(), is(equalTo(LErrorType.E_UNMATCHED_END)));
+	}
+
+	@Test
+	void testLexicalModel()
+	{
+		final String uri = "rexx/incremental.rex";
+		final String previousText = "say 'abc'\nsay 1\nend\n";
+		final LModel previousModel = LParser.INSTANCE.parse(uri, previousText);
+		assertThat(previousModel.getErrors().getNumberOfErrors(), is(equalTo(1)));
+		// remove the closing quote
+		final String text = "say 'abc\nsay 1\nend\n";
+		final LTextChange change = LTextChange.of(8, 9, 0);
+		final List<LModel> lexicalModels = new ArrayList<LModel>();
+		final LModel lModel = LParser.INSTANCE.parse(uri, 1, text, previousModel, change, null, lexicalModels::add);
+		assertThat(lexicalModels.size(), is(equalTo(1)));
+		final LErrors lexicalErrors = lexicalModels.get(0).getErrors();
+		assertThat(lexicalModels.get(0).getVersion(), is(equalTo(1)));
+		// the structural error of the previous model is moved to the new text
+		assertThat(lexicalErrors.getNumberOfErrors(), is(equalTo(2)));
+		assertThat(lexicalErrors.getError(0).getErrorType(), is(equalTo(LErrorType.E_UNCLOSED_STRING)));
+		assertThat(lexicalErrors.getError(1).getErrorType(), is(equalTo(LErrorType.E_UNMATCHED_END)));
+		assertThat(lexicalErrors.getError(1).getToken().getCharBegin(), is(equalTo(15L)));
+		assertThat(lexicalErrors.getError(1).getToken().getLine(), is(equalTo(2)));
+		for (int i = 0; i < lModel.getErrors().getNumberOfErrors(); ++i) {
+			assertThat(lexicalErrors.getError(i).getToken().toString(),
+					is(equalTo(lModel.getErrors().getError(i).getToken().toString())));
+		}
+	}
+
+	/**
+	 * Parse the text, apply the edit and check that parsing the new text with the previous model gives the same result
+	 * as parsing it completely.
+	 */
+	private static LModel assertIncremental(final String pText, final int pStart, final int pEnd, final String pInsert)
+	{
+		final String uri = "rexx/incremental.rex";
+		final LModel previousModel = LParser.INSTANCE.parse(uri, pText);
+		final String text = pText.substring(0, pStart) + pInsert + pText.substring(pEnd);
+		final LTextChange change = LTextChange.of(pStart, pEnd, pInsert.length());
+		final LModel expectedModel = LParser.INSTANCE.parse(uri, text);
+		final LModel lModel = LParser.INSTANCE.parse(uri, text, previousModel, change, null);
+		assertThat(lModel.getText(), is(equalTo(text)));
+		assertThat(lModel.getTokens().toString(), is(equalTo(expectedModel.getTokens().toString())));
+		assertThat(lModel.getVariables().toString(), is(equalTo(expectedModel.getVariables().toString())));
+		assertThat(lModel.getLabels().toString(), is(equalTo(expectedModel.getLabels().toString())));
+		assertThat(lModel.getErrors().getNumberOfErrors(), is(equalTo(expectedModel.getErrors().getNumberOfErrors())));
+		for (int i = 0; i < lModel.getErrors().getNumberOfErrors(); ++i) {
+			final LError error = lModel.getErrors().getError(i);
+			final LError expectedError = expectedModel.getErrors().getError(i);
+			assertThat(error.getErrorType(), is(equalTo(expectedError.getErrorType())));
+			assertThat(error.getToken().toString(), is(equalTo(expectedError.getToken().toString())));
+		}
+		return lModel;
+	}
+}
@@ -0,0 +1,98 @@
+/**
+ *  Copyright (c) 2020 Generali Deutschland AG - Team Informatik
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v2.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *  Markus Holzem <markus.holzem@generali.com>
+ */
+package de.generali.dev.ls.language;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * LTokenTableTest
+ */
+class LTokenTableTest
+{
+	@Test
+	void testView()
+	{
+		final LTokenTable table = new LTokenTable("say var\nexit");
+		table.add(LTokenType.KEYWORD, LKeyword.SAY, 0L, 3, 0, 0);
+		table.add(LTokenType.WHITESPACE, 3L, 1, 0, 3);
+		table.add(LTokenType.IDENTIFIER, 4L, 3, 0, 4);
+		table.add(LTokenType.WHITESPACE, 7L, 1, 0, 7);
+		table.add(new LToken(LTokenType.KEYWORD, "exit", 1, 0, 8L));
+		assertThat(table.size(), is(equalTo(5)));
+		final LToken token = table.get(2);
+		assertThat(token.getType(), is(equalTo(LTokenType.IDENTIFIER)));
+		assertThat(token.getText(), is(equalTo("var")));
+		assertThat(token.getCharBegin(), is(equalTo(4L)));
+		assertThat(token.getCharEnd(), is(equalTo(7L)));
+		assertThat(table.get(4).getText(), is(equalTo("exit")));
+		assertThat(table.get(4).getLine(), is(equalTo(1)));
+		assertThat(table.getKeyword(0), is(equalTo(LKeyword.SAY)));
+		assertThat(table.getKeyword(2), is(nullValue()));
+		assertThat(table.getKeyword(4), is(equalTo(LKeyword.EXIT)));
+	}
+
+	@Test
+	void testLocate()
+	{
+		final LModel lModel = LParser.INSTANCE.parse("test.rex", "say var\n  exit 0\n");
+		final LTokenTable table = (LTokenTable) lModel.getTokens();
+		assertThat(table.getText(table.locate(0, 5)), is(equalTo("var")));
+		assertThat(table.getText(table.locate(1, 2)), is(equalTo("exit")));
+		assertThat(table.getText(table.locate(1, 5)), is(equalTo("exit")));
+		assertThat(table.getType(table.locate(1, 6)), is(equalTo(LTokenType.WHITESPACE)));
+		// behind the end of a line
+		assertThat(table.locate(0, 20), is(equalTo(-1)));
+	}
+
+	@Test
+	void testLocateWithLineIndex()
+	{
+		final LModel lModel = LParser.INSTANCE.parse("test.rex", "/* first\n line */ say var\n\n  exit 0\n");
+		final LTokenTable indexed = (LTokenTable) lModel.getTokens();
+		final LTokenTable table = new LTokenTable(indexed.getSource());
+		table.addAll(indexed, 0, indexed.size(), 0, 0L);
+		assertThat(indexed.getText(indexed.locate(1, 10)), is(equalTo("say")));
+		// inside the comment which starts on the line before
+		assertThat(indexed.locate(1, 2), is(equalTo(-1)));
+		assertThat(indexed.locate(-1, 0), is(equalTo(-1)));
+		assertThat(indexed.locate(10, 0), is(equalTo(-1)));
+		for (int line = -1; line < 6; ++line) {
+			for (int column = 0; column < 20; ++column) {
+				assertThat(indexed.locate(line, column), is(equalTo(table.locate(line, column))));
+			}
+		}
+	}
+
+	@Test
+	void testAddMoved()
+	{
+		final LTokenTable table = new LTokenTable("a = 1\nb = 2\n");
+		table.add(LTokenType.IDENTIFIER, 0L, 1, 0, 0);
+		table.add(LTokenType.WHITESPACE, 1L, 1, 0, 1);
+		table.add(LTokenType.EQ, 2L, 1, 0, 2);
+		final LTokenTable moved = new LTokenTable("\n\na = 1\nb = 2\n");
+		moved.addAll(table, 0, 3, 2, 2L);
+		moved.trimToSize();
+		assertThat(moved.size(), is(equalTo(3)));
+		assertThat(moved.get(2).getText(), is(equalTo("=")));
+		assertThat(moved.get(2).getLine(), is(equalTo(2)));
+		assertThat(moved.get(2).getColumn(), is(equalTo(2)));
+		assertThat(moved.get(2).getCharBegin(), is(equalTo(4L)));
+	}
+}
@@ -13,9 +13,6 @@
  */
 package de.generali.dev.ls.language.testutils;
 
-import java.io.Reader;
-import java.io.StringReader;
-
 import de.generali.dev.ls.language.LLexer;
 
 /**
@@ -41,8 +38,7 @@ public class LLexerBuilder
 
 	public LLexer build()
 	{
-		final Reader reader = new StringReader(_stringBuilder.toString());
-		final LLexer lexer = new LLexer(reader);
+		final LLexer lexer = new LLexer(_stringBuilder.toString());
 		return lexer;
 	}
 }
\ No newline at end of file
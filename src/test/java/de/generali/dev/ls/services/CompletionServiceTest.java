@@ -16,17 +16,23 @@ package de.generali.dev.ls.services;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
 
 import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.lsp4j.CompletionItem;
+import org.eclipse.lsp4j.CompletionItemKind;
 import org.eclipse.lsp4j.CompletionList;
 import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
 import org.eclipse.lsp4j.ServerCapabilities;
 import org.junit.jupiter.api.Test;
 
+import de.generali.dev.ls.LSettings;
 import de.generali.dev.ls.language.LModel;
 import de.generali.dev.ls.language.LParser;
 import de.generali.dev.ls.language.testutils.TestResource;
@@ -63,7 +69,7 @@ class CompletionServiceTest
 			final List<CompletionItem> items = list.getItems();
 			final List<String> foundlist = new ArrayList<String>();
 			for (final CompletionItem item : items) {
-				foundlist.add(item.getInsertText());
+				foundlist.add(item.getLabel());
 			}
 			if (varlist[i].length == 0) {
 				assertThat(foundlist, is(empty()));
@@ -103,7 +109,7 @@ class CompletionServiceTest
 			final List<CompletionItem> items = list.getItems();
 			final List<String> foundlist = new ArrayList<String>();
 			for (final CompletionItem item : items) {
-				foundlist.add(item.getInsertText());
+				foundlist.add(item.getLabel());
 			}
 			System.out.println(foundlist);
 			if (varlist[i].length == 0) {
@@ -113,4 +119,126 @@ class CompletionServiceTest
 			}
 		}
 	}
+
+	@Test
+	void testCompletionSession()
+	{
+		final String uri = "rexx/completion-service-variables-stems.rex";
+		final String testResourceContent = TestResource.getContent(uri);
+		final String text = testResourceContent.substring(0, testResourceContent.indexOf("ste\n"));
+		final LServices services = new LServices(new ServerCapabilities());
+		final LModel lModel = LParser.INSTANCE.parse(uri, text + "stem.c\n");
+		final Position position = new Position(9, 6);
+		final CompletionList list = services.doComplete(null, lModel, position);
+		assertThat(list.isIncomplete(), is(false));
+		// the same request again is answered from the session
+		assertThat(getLabels(services.doComplete(null, lModel, position)), is(equalTo(getLabels(list))));
+		// the user typed on at the same token
+		final LModel nextModel = LParser.INSTANCE.parse(uri, text + "stem.cnt.f\n");
+		final Position nextPosition = new Position(9, 10);
+		final CompletionList expected = new LServices(new ServerCapabilities()).doComplete(null, nextModel,
+				nextPosition);
+		final CompletionList filtered = services.doComplete(null, nextModel, nextPosition);
+		assertThat(getLabels(filtered), is(equalTo(getLabels(expected))));
+		assertThat(filtered.getItems().size(), is(lessThan(list.getItems().size())));
+	}
+
+	@Test
+	void testCompletionSessionRenamed()
+	{
+		final String uri = "test.rex";
+		final LServices services = new LServices(new ServerCapabilities());
+		final CompletionList list = services.doComplete(null, LParser.INSTANCE.parse(uri, "cnt_a = 1\nsay cn\n"),
+				new Position(1, 6));
+		assertThat(getLabels(list), contains("cnt_a 4-6"));
+		// the variable was renamed, it has as many variables as before
+		final CompletionList renamed = services.doComplete(null,
+				LParser.INSTANCE.parse(uri, "cnt_b = 1\nsay cnt\n"), new Position(1, 7));
+		assertThat(getLabels(renamed), contains("cnt_b 4-7"));
+	}
+
+	@Test
+	void testResolveCompletionItem()
+	{
+		final String uri = "rexx/completion-service-variables.rex";
+		final String testResourceContent = TestResource.getContent(uri);
+		final LModel lModel = LParser.INSTANCE.parse(uri, testResourceContent);
+		final LServices services = new LServices(new ServerCapabilities());
+		final CompletionList list = services.doComplete(null, lModel, new Position(5, 7));
+		final CompletionItem item = list.getItems().get(1);
+		assertThat(item.getLabel(), is(equalTo("var2")));
+		assertThat(item.getDetail(), is(nullValue()));
+		assertThat(CompletionService.getDataUri(item), is(equalTo(uri)));
+		assertThat(CompletionService.getDataVersion(item), is(equalTo(lModel.getVersion())));
+		services.resolveCompletionItem(null, lModel, item);
+		assertThat(item.getDetail(), is(equalTo("Variable var2")));
+		assertThat(item.getDocumentation().getLeft(), is(equalTo("var2 = 2")));
+	}
+
+	@Test
+	void testResolveFirstAssignment()
+	{
+		final String uri = "test.rex";
+		final LModel lModel = LParser.INSTANCE.parse(uri, "varx = 1\nVar = 2\nvar = 3\ns.b = 4\ns.a = 5\n");
+		final LServices services = new LServices(new ServerCapabilities());
+		final CompletionItem var = new CompletionItem("var");
+		var.setKind(CompletionItemKind.Variable);
+		services.resolveCompletionItem(null, lModel, var);
+		assertThat(var.getDocumentation().getLeft(), is(equalTo("Var = 2")));
+		// a stem part is documented by the first assignment of the stem
+		final CompletionItem stem = new CompletionItem("s.");
+		stem.setKind(CompletionItemKind.Variable);
+		services.resolveCompletionItem(null, lModel, stem);
+		assertThat(stem.getDocumentation().getLeft(), is(equalTo("s.b = 4")));
+		// a longer name does not document a name which is not assigned
+		final CompletionItem va = new CompletionItem("va");
+		va.setKind(CompletionItemKind.Variable);
+		services.resolveCompletionItem(null, lModel, va);
+		assertThat(va.getDocumentation(), is(nullValue()));
+	}
+
+	@Test
+	void testCompletionLimit()
+	{
+		final String uri = "rexx/completion-service-variables.rex";
+		final String testResourceContent = TestResource.getContent(uri);
+		final LModel lModel = LParser.INSTANCE.parse(uri, testResourceContent);
+		final LServices services = new LServices(new ServerCapabilities(),
+				LSettings.builder().completionLimit(2).build());
+		// var3 is defined nearest to the cursor, var1 farthest
+		final CompletionList list = services.doComplete(null, lModel, new Position(7, 7));
+		assertThat(list.isIncomplete(), is(true));
+		final List<String> ranks = new ArrayList<String>();
+		for (final CompletionItem item : list.getItems()) {
+			ranks.add(item.getLabel() + " " + item.getSortText());
+		}
+		assertThat(ranks, contains("var2 00001", "var3 00000"));
+		// without a limit all candidates are sent
+		final CompletionList all = new LServices(new ServerCapabilities()).doComplete(null, lModel,
+				new Position(7, 7));
+		assertThat(all.isIncomplete(), is(false));
+		assertThat(all.getItems().size(), is(3));
+	}
+
+	@Test
+	void testCompletionFunctions()
+	{
+		final String uri = "test.rex";
+		final LModel lModel = LParser.INSTANCE.parse(uri, "say ms\n");
+		final LServices services = new LServices(new ServerCapabilities());
+		final CompletionList list = services.doComplete(null, lModel, new Position(0, 6));
+		assertThat(getLabels(list), contains("msg 4-6"));
+		final CompletionItem item = services.resolveCompletionItem(null, lModel, list.getItems().get(0));
+		assertThat(item.getDetail(), is(equalTo("MSG([ON | OFF])")));
+	}
+
+	private static List<String> getLabels(final CompletionList pList)
+	{
+		final List<String> labels = new ArrayList<String>();
+		for (final CompletionItem item : pList.getItems()) {
+			final Range range = item.getTextEdit().getRange();
+			labels.add(item.getLabel() + " " + range.getStart().getCharacter() + "-" + range.getEnd().getCharacter());
+		}
+		return labels;
+	}
 }
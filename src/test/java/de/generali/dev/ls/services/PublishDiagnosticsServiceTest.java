@@ -0,0 +1,193 @@
+/**
+ *  Copyright (c) 2020 Generali Deutschland AG - Team Informatik
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v2.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v20.html
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *  Markus Holzem <markus.holzem@generali.com>
+ */
+package de.generali.dev.ls.services;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.lsp4j.MessageActionItem;
+import org.eclipse.lsp4j.MessageParams;
+import org.eclipse.lsp4j.PublishDiagnosticsParams;
+import org.eclipse.lsp4j.ServerCapabilities;
+import org.eclipse.lsp4j.ShowMessageRequestParams;
+import org.eclipse.lsp4j.TextDocumentIdentifier;
+import org.eclipse.lsp4j.services.LanguageClient;
+import org.junit.jupiter.api.Test;
+
+import de.generali.dev.ls.language.LModel;
+import de.generali.dev.ls.language.LParser;
+
+/**
+ * PublishDiagnosticsServiceTest
+ */
+class PublishDiagnosticsServiceTest
+{
+	@Test
+	void testUnchangedDiagnostics()
+	{
+		final String uri = "test.rex";
+		final LServices services = new LServices(new ServerCapabilities());
+		final LDiagnosticsClient client = new LDiagnosticsClient();
+		services.updateVersion(uri, 0, 0);
+		services.publishDiagnostics(client, null, LParser.INSTANCE.parse(uri, "say 'abc\n"));
+		assertThat(client.published.size(), is(1));
+		assertThat(client.published.get(0).getDiagnostics().size(), is(1));
+		// typing within the unclosed string changes the text of the error
+		services.publishDiagnostics(client, null, LParser.INSTANCE.parse(uri, "say 'abd\n"));
+		assertThat(client.published.size(), is(2));
+		// typing in a comment behind the string does not change the errors
+		services.publishDiagnostics(client, null, LParser.INSTANCE.parse(uri, "say 'abd\n/* x */\n"));
+		assertThat(client.published.size(), is(2));
+		// the error moved
+		services.publishDiagnostics(client, null, LParser.INSTANCE.parse(uri, "sa 'abd\n"));
+		assertThat(client.published.size(), is(3));
+		assertThat(client.published.get(2).getDiagnostics().get(0).getRange().getStart().getCharacter(), is(3));
+		services.publishDiagnostics(client, null, LParser.INSTANCE.parse(uri, "say 'abd'\n"));
+		assertThat(client.published.size(), is(4));
+		assertThat(client.published.get(3).getDiagnostics(), is(empty()));
+		// the texts of the errors have the same hash
+		services.publishDiagnostics(client, null, LParser.INSTANCE.parse(uri, "say 'Aa\n"));
+		services.publishDiagnostics(client, null, LParser.INSTANCE.parse(uri, "say 'BB\n"));
+		assertThat(client.published.size(), is(6));
+		assertThat(client.published.get(5).getDiagnostics().get(0).getSource(), is(equalTo("'BB")));
+		services.publishDiagnostics(client, null, LParser.INSTANCE.parse(uri, "say 'abd'\n"));
+		assertThat(client.published.size(), is(7));
+		// after the document was opened again the diagnostics are published again
+		services.cleanDiagnostics(client, new TextDocumentIdentifier(uri));
+		services.updateVersion(uri, 0, 0);
+		services.publishDiagnostics(client, null, LParser.INSTANCE.parse(uri, "say 'abd'\n"));
+		assertThat(client.published.size(), is(9));
+		assertThat(client.published.get(8).getUri(), is(equalTo(uri)));
+	}
+
+	@Test
+	void testOutdatedDiagnostics()
+	{
+		final String uri = "test.rex";
+		final LServices services = new LServices(new ServerCapabilities());
+		final LDiagnosticsClient client = new LDiagnosticsClient();
+		services.updateVersion(uri, 1, 1);
+		services.publishDiagnostics(client, null, parse(uri, 1, 2, "say 'abc'\n"));
+		assertThat(client.published.size(), is(1));
+		// the slow parse of an older version is dropped
+		services.publishDiagnostics(client, null, parse(uri, 1, 1, "say 'abc\n"));
+		assertThat(client.published.size(), is(1));
+		services.publishDiagnostics(client, null, parse(uri, 1, 3, "say 'abc\n"));
+		assertThat(client.published.size(), is(2));
+		assertThat(client.published.get(1).getDiagnostics().size(), is(1));
+		// the model of version 3 is outdated as soon as the document is changed
+		services.updateVersion(uri, 1, 4);
+		services.publishDiagnostics(client, null, parse(uri, 1, 3, "say 'abc'\n"));
+		assertThat(client.published.size(), is(2));
+		// nothing is published behind the clean of a closed document
+		services.cleanDiagnostics(client, new TextDocumentIdentifier(uri));
+		assertThat(client.published.size(), is(3));
+		services.publishDiagnostics(client, null, parse(uri, 1, 4, "say 'abc'\n"));
+		assertThat(client.published.size(), is(3));
+		assertThat(client.published.get(2).getDiagnostics(), is(empty()));
+		// a document opened again starts with a lower version, a late parse of the closed one does not outdate it
+		services.updateVersion(uri, 2, 1);
+		services.publishDiagnostics(client, null, parse(uri, 1, 5, "say 'abc'\n"));
+		assertThat(client.published.size(), is(3));
+		services.publishDiagnostics(client, null, parse(uri, 2, 1, "say 'abc\n"));
+		assertThat(client.published.size(), is(4));
+		assertThat(client.published.get(3).getDiagnostics().size(), is(1));
+	}
+
+	@Test
+	void testDocumentsNotBlocked() throws Exception
+	{
+		final LServices services = new LServices(new ServerCapabilities());
+		services.updateVersion("a.rex", 0, 0);
+		services.updateVersion("b.rex", 0, 0);
+		final CountDownLatch sending = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		// the client is slow to send the diagnostics of a.rex
+		final LDiagnosticsClient client = new LDiagnosticsClient() {
+			@Override
+			public void publishDiagnostics(final PublishDiagnosticsParams pDiagnostics)
+			{
+				if (pDiagnostics.getUri().equals("a.rex")) {
+					sending.countDown();
+					try {
+						release.await();
+					} catch (final InterruptedException exc) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				super.publishDiagnostics(pDiagnostics);
+			}
+		};
+		final CompletableFuture<Void> a = CompletableFuture
+				.runAsync(() -> services.publishDiagnostics(client, null, LParser.INSTANCE.parse("a.rex", "say 'a\n")));
+		assertThat(sending.await(5, TimeUnit.SECONDS), is(true));
+		CompletableFuture
+				.runAsync(() -> services.publishDiagnostics(client, null, LParser.INSTANCE.parse("b.rex", "say 'b\n")))
+				.get(5, TimeUnit.SECONDS);
+		assertThat(client.published.size(), is(1));
+		assertThat(client.published.get(0).getUri(), is(equalTo("b.rex")));
+		release.countDown();
+		a.get(5, TimeUnit.SECONDS);
+		assertThat(client.published.size(), is(2));
+	}
+
+	private static LModel parse(final String pUri, final int pGeneration, final int pVersion, final String pText)
+	{
+		return LParser.INSTANCE.parse(pUri, pVersion, pText, null, null, null).toBuilder().generation(pGeneration)
+				.build();
+	}
+
+	/**
+	 * LDiagnosticsClient records the published diagnostics, they may be sent from several threads.
+	 */
+	private static class LDiagnosticsClient implements LanguageClient
+	{
+		private final List<PublishDiagnosticsParams> published = new CopyOnWriteArrayList<PublishDiagnosticsParams>();
+
+		@Override
+		public void publishDiagnostics(final PublishDiagnosticsParams pDiagnostics)
+		{
+			published.add(pDiagnostics);
+		}
+
+		@Override
+		public void telemetryEvent(final Object pObject)
+		{
+		}
+
+		@Override
+		public void showMessage(final MessageParams pMessageParams)
+		{
+		}
+
+		@Override
+		public CompletableFuture<MessageActionItem> showMessageRequest(final ShowMessageRequestParams pRequestParams)
+		{
+			return CompletableFuture.completedFuture(null);
+		}
+
+		@Override
+		public void logMessage(final MessageParams pMessage)
+		{
+		}
+	}
+}